@@ -2,15 +2,18 @@ package com.controller.admin;
 
 import com.entity.Category;
 import com.entity.Role;
-import com.service.OrderService;
 import com.service.ProductService;
+import com.payload.response.MessageResponse;
 import com.service.ReviewService;
+import com.service.SalesRollupService;
 import com.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -37,10 +40,10 @@ public class AdminDashboardController {
     private ProductService productService;
 
     @Autowired
-    private OrderService orderService;
+    private ReviewService reviewService;
 
     @Autowired
-    private ReviewService reviewService;
+    private SalesRollupService salesRollupService;
 
     /**
      * Get overall dashboard statistics.
@@ -61,8 +64,11 @@ public class AdminDashboardController {
         stats.put("womenProducts", productService.countProductsByCategory(Category.WOMEN));
         stats.put("kidsProducts", productService.countProductsByCategory(Category.KIDS));
 
-        // Order stats
-        stats.put("totalOrders", orderService.getTotalOrderCount());
+        // Order stats (summed from the daily sales rollups, not the orders table)
+        double[] salesTotals = salesRollupService.getTotals(null);
+        stats.put("totalOrders", (long) salesTotals[0]);
+        stats.put("totalRevenue", salesTotals[1]);
+        stats.put("cancelledOrders", (long) salesTotals[2]);
 
         // Review stats
         stats.put("totalReviews", reviewService.getTotalReviewCount());
@@ -70,6 +76,22 @@ public class AdminDashboardController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Rebuild the daily sales rollups for a date range (inclusive), or the whole
+     * order history when no range is given.
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<MessageResponse> rebuildSalesRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from == null) {
+            salesRollupService.rebuildAll();
+        } else {
+            salesRollupService.rebuild(from, to != null ? to : LocalDate.now());
+        }
+        return ResponseEntity.ok(new MessageResponse("Sales rollups rebuilt successfully"));
+    }
+
     /**
      * Get user statistics only.
      */
@@ -3,12 +3,19 @@ package com.controller.admin;
 import com.dto.AdminOrderDTO;
 import com.entity.OrderStatus;
 import com.service.InvoiceService;
+import com.service.OrderExportService;
 import com.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -22,6 +29,9 @@ public class AdminOrderController {
     @Autowired
     private InvoiceService invoiceService;
 
+    @Autowired
+    private OrderExportService orderExportService;
+
     @PostMapping("/{orderId}/resend-invoice")
     public ResponseEntity<?> resendInvoice(@PathVariable Long orderId) {
         invoiceService.sendInvoiceEmail(orderId);
@@ -33,6 +43,42 @@ public class AdminOrderController {
         return ResponseEntity.ok(orderService.getAllOrdersDTO());
     }
 
+    @GetMapping("/all/cursor")
+    public ResponseEntity<com.payload.response.CursorPage<AdminOrderDTO>> getOrdersByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(orderService.getOrdersPage(after, Math.max(1, Math.min(size, 200))));
+    }
+
+    /**
+     * Export orders as CSV (default) or NDJSON, streamed as they are read.
+     * All filters are optional; "to" is inclusive.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long tenantId) {
+        OrderExportService.Format exportFormat = "ndjson".equalsIgnoreCase(format)
+                ? OrderExportService.Format.NDJSON
+                : OrderExportService.Format.CSV;
+        LocalDateTime fromDate = from != null ? from.atStartOfDay() : null;
+        LocalDateTime toDate = to != null ? to.plusDays(1).atStartOfDay() : null;
+
+        StreamingResponseBody body = out -> orderExportService.export(status, fromDate, toDate, tenantId,
+                exportFormat, out);
+
+        String filename = exportFormat == OrderExportService.Format.NDJSON ? "orders.ndjson" : "orders.csv";
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(exportFormat == OrderExportService.Format.NDJSON
+                        ? MediaType.parseMediaType("application/x-ndjson")
+                        : MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+
     @PutMapping("/{orderId}/status")
     public ResponseEntity<com.dto.OrderResponseDTO> updateStatus(@PathVariable Long orderId,
             @RequestParam OrderStatus status) {
@@ -18,6 +18,7 @@ import java.util.Objects;
 import java.util.Optional;
 
 import com.entity.User;
+import com.event.ProductCatalogChangedEvent;
 import com.repository.UserRepository;
 import com.repository.ModeratorRepository;
 import com.service.UserDetailsImpl;
@@ -39,6 +40,15 @@ public class AdminProductController {
     @Autowired
     private com.repository.ProductImageRepository productImageRepository;
 
+    @Autowired
+    private com.service.ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private com.util.FileStorageUtil fileStorageUtil;
+
+    @Autowired
+    private com.service.BlobMigrationService blobMigrationService;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -51,6 +61,9 @@ public class AdminProductController {
     @Autowired
     private com.service.ProductAttributeService attributeService;
 
+    @Autowired
+    private org.springframework.context.ApplicationEventPublisher eventPublisher;
+
     @PostMapping(consumes = "multipart/form-data")
     @Transactional
     public ResponseEntity<com.payload.response.ProductResponse> createProduct(
@@ -193,6 +206,9 @@ public class AdminProductController {
             }
 
             Product finalProduct = productRepository.findById(savedProduct.getModelNo()).orElse(savedProduct);
+            publishCatalogChange(finalProduct.getModelNo(), existingProductOpt.isPresent()
+                    ? ProductCatalogChangedEvent.ChangeType.UPDATED
+                    : ProductCatalogChangedEvent.ChangeType.CREATED);
             return ResponseEntity.ok(productMapper.toResponse(finalProduct));
         } catch (Exception e) {
             System.err.println("Error in createProduct: " + e.getMessage());
@@ -201,37 +217,21 @@ public class AdminProductController {
         }
     }
 
-    private final java.nio.file.Path rootLocation = java.nio.file.Paths.get("uploads");
-
     private void handleImages(ProductVariant variant, MultipartFile... files) throws IOException {
-        // Ensure directory exists
-        if (!java.nio.file.Files.exists(rootLocation)) {
-            java.nio.file.Files.createDirectories(rootLocation);
-        }
-
         boolean hasUploaded = false;
         for (MultipartFile file : files) {
             if (file != null && !file.isEmpty()) {
                 ProductImage img = new ProductImage();
                 img.setVariant(variant);
 
-                // Save to File System
-                String filename = java.util.UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-                java.nio.file.Path destinationFile = rootLocation.resolve(filename).normalize().toAbsolutePath();
-
-                // Security check: Verify file is within target directory
-                if (!destinationFile.getParent().equals(rootLocation.toAbsolutePath())) {
-                    throw new IOException("Cannot store file outside current directory.");
-                }
-
-                try (java.io.InputStream inputStream = file.getInputStream()) {
-                    java.nio.file.Files.copy(inputStream, destinationFile);
-                }
+                // Save to File System (content-addressed: the same picture for another variant is stored once)
+                String storedPath = fileStorageUtil.storeFile(file);
+                // Thumbnails for listings are rendered in the background
+                imageRenditionService.submit(fileStorageUtil.resolveStoredPath(storedPath));
 
-                img.setImageData(null); // Do not store BLOB
                 img.setImageType(file.getContentType());
                 img.setPrimary(variant.getImages().isEmpty());
-                img.setImageUrl("/uploads/" + filename);
+                img.setImageUrl(storedPath);
 
                 productImageRepository.save(img); // Save with URL
 
@@ -280,7 +280,9 @@ public class AdminProductController {
             }
         }
 
-        return ResponseEntity.ok(productMapper.toResponse(productRepository.save(product)));
+        Product saved = productRepository.save(product);
+        publishCatalogChange(saved.getModelNo(), ProductCatalogChangedEvent.ChangeType.UPDATED);
+        return ResponseEntity.ok(productMapper.toResponse(saved));
     }
 
     @PutMapping(value = "/{modelNo}", consumes = "multipart/form-data")
@@ -413,8 +415,10 @@ public class AdminProductController {
                         for (com.entity.ProductImage originalImg : product.getVariants().get(0).getImages()) {
                             com.entity.ProductImage newImg = new com.entity.ProductImage();
                             newImg.setVariant(v);
-                            newImg.setImageUrl(originalImg.getImageUrl());
-                            newImg.setImageData(originalImg.getImageData());
+                            // A legacy image still in the database is moved to the file store, so both rows
+                            // share one file instead of copying the bytes
+                            String movedUrl = blobMigrationService.externalizeImage(originalImg.getId());
+                            newImg.setImageUrl(movedUrl != null ? movedUrl : originalImg.getImageUrl());
                             newImg.setImageType(originalImg.getImageType());
                             newImg.setPrimary(originalImg.isPrimary());
                             v.getImages().add(newImg);
@@ -453,6 +457,7 @@ public class AdminProductController {
         }
 
         Product saved = productRepository.save(product);
+        publishCatalogChange(saved.getModelNo(), ProductCatalogChangedEvent.ChangeType.UPDATED);
         return ResponseEntity.ok(productMapper.toResponse(saved));
     }
 
@@ -463,9 +468,14 @@ public class AdminProductController {
                 Objects.requireNonNull(modelNo, "Model No is required"))
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         productRepository.delete(product);
+        publishCatalogChange(modelNo, ProductCatalogChangedEvent.ChangeType.DELETED);
         return ResponseEntity.noContent().build();
     }
 
+    private void publishCatalogChange(Long modelNo, ProductCatalogChangedEvent.ChangeType changeType) {
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, modelNo, changeType));
+    }
+
     private <T extends Enum<T>> T safeEnumValueOf(Class<T> enumType, String value) {
         if (value == null || value.isEmpty())
             return null;
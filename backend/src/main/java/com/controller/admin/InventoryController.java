@@ -1,12 +1,16 @@
 package com.controller.admin;
 
 import com.entity.ProductVariant;
+import com.payload.request.BulkStockUpdateRequest;
+import com.payload.response.BulkStockUpdateResponse;
+import com.service.BulkStockService;
 import com.service.InventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +27,12 @@ public class InventoryController {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private com.service.HotSkuInventory hotSkuInventory;
+
+    @Autowired
+    private BulkStockService bulkStockService;
+
     /**
      * Get inventory dashboard summary
      */
@@ -76,27 +86,77 @@ public class InventoryController {
     }
 
     /**
-     * Bulk update stock
+     * Flash-sale (hot SKU) mode: variants sold from in-memory counters
+     */
+    @GetMapping("/hot")
+    public ResponseEntity<Map<String, Object>> getHotVariants() {
+        Map<String, Object> result = new HashMap<>();
+        for (Long variantId : hotSkuInventory.getHotVariantIds()) {
+            result.put(variantId.toString(), hotSkuInventory.getAvailable(variantId));
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @PutMapping("/{variantId}/hot")
+    @PreAuthorize("hasRole('ADMIN')")
+    @org.springframework.transaction.annotation.Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public ResponseEntity<Map<String, Object>> enableHotMode(@PathVariable Long variantId) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("variantId", variantId);
+        result.put("available", hotSkuInventory.enable(variantId));
+        return ResponseEntity.ok(result);
+    }
+
+    @DeleteMapping("/{variantId}/hot")
+    @PreAuthorize("hasRole('ADMIN')")
+    @org.springframework.transaction.annotation.Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public ResponseEntity<Map<String, String>> disableHotMode(@PathVariable Long variantId) {
+        hotSkuInventory.disable(variantId);
+        Map<String, String> result = new HashMap<>();
+        result.put("message", "Hot SKU mode disabled for variant " + variantId);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Bulk stock update: delta or absolute quantities for many variants, with
+     * a result per line. Send an Idempotency-Key to make retries safe.
+     */
+    @PostMapping("/bulk")
+    @org.springframework.transaction.annotation.Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public ResponseEntity<BulkStockUpdateResponse> bulkStockUpdate(
+            @RequestBody BulkStockUpdateRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(bulkStockService.apply(request, idempotencyKey));
+    }
+
+    /**
+     * Bulk update stock (absolute quantities)
      */
     @PutMapping("/bulk-update")
+    @org.springframework.transaction.annotation.Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
     public ResponseEntity<Map<String, String>> bulkUpdateStock(@RequestBody List<Map<String, Object>> updates) {
-        int successCount = 0;
-        int failCount = 0;
-
+        List<BulkStockUpdateRequest.Line> lines = new ArrayList<>();
+        int invalid = 0;
         for (Map<String, Object> update : updates) {
             try {
                 // Expecting "variantId" now
-                Long variantId = Long.valueOf(update.get("variantId").toString());
-                int quantity = Integer.parseInt(update.get("quantity").toString());
-                inventoryService.updateStock(variantId, quantity);
-                successCount++;
+                BulkStockUpdateRequest.Line line = new BulkStockUpdateRequest.Line();
+                line.setVariantId(Long.valueOf(update.get("variantId").toString()));
+                line.setQuantity(Integer.parseInt(update.get("quantity").toString()));
+                lines.add(line);
             } catch (Exception e) {
-                failCount++;
+                invalid++;
             }
         }
 
+        BulkStockUpdateRequest request = new BulkStockUpdateRequest();
+        request.setMode(BulkStockUpdateRequest.Mode.SET);
+        request.setItems(lines);
+        BulkStockUpdateResponse response = bulkStockService.apply(request, null);
+
         Map<String, String> result = new HashMap<>();
-        result.put("message", String.format("Updated %d variants, %d failed", successCount, failCount));
+        result.put("message", String.format("Updated %d variants, %d failed", response.getUpdated(),
+                response.getFailed() + invalid));
         return ResponseEntity.ok(result);
     }
 }
@@ -0,0 +1,109 @@
+package com.controller.admin;
+
+import com.entity.Moderator;
+import com.payload.response.ImportJobStatus;
+import com.payload.response.MessageResponse;
+import com.repository.ModeratorRepository;
+import com.service.ProductImportService;
+import com.service.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk product import: upload a CSV or NDJSON file (one line per variant),
+ * as a multipart part or, for large files, as the raw request body, then
+ * poll the returned job until it is COMPLETED or FAILED.
+ */
+@RestController
+@RequestMapping("/api/admin/products/import")
+@PreAuthorize("hasRole('ADMIN') or hasRole('MODERATOR')")
+public class ProductImportController {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ModeratorRepository moderatorRepository;
+
+    @PostMapping(consumes = "multipart/form-data")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> startImport(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(required = false) ProductImportService.Format format,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) throws IOException {
+        ProductImportService.ImportContext context = importContext(currentUser);
+        if (context == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new MessageResponse("Not allowed to add products"));
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(productImportService.startImport(file, format, context));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Large files: the file itself as the request body (Content-Type text/csv,
+     * application/x-ndjson or application/octet-stream), streamed to disk
+     * outside the global multipart size limits.
+     */
+    @PostMapping(consumes = { "text/csv", "application/x-ndjson", "application/octet-stream" })
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> startStreamedImport(
+            InputStream body,
+            @RequestParam(required = false) String fileName,
+            @RequestParam(required = false) ProductImportService.Format format,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) throws IOException {
+        ProductImportService.ImportContext context = importContext(currentUser);
+        if (context == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new MessageResponse("Not allowed to add products"));
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(productImportService.startImport(body, fileName, format, context));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportJobStatus> getStatus(@PathVariable String jobId,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        ImportJobStatus status = productImportService.getStatus(jobId, currentUser.getId(), isAdmin(currentUser));
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ImportJobStatus>> getJobs(@AuthenticationPrincipal UserDetailsImpl currentUser) {
+        return ResponseEntity.ok(productImportService.getJobs(currentUser.getId(), isAdmin(currentUser)));
+    }
+
+    // Null when the user may not add products
+    private ProductImportService.ImportContext importContext(UserDetailsImpl currentUser) {
+        if (isAdmin(currentUser)) {
+            return new ProductImportService.ImportContext(currentUser.getId(), null, Set.of());
+        }
+        Moderator moderator = moderatorRepository.findByUserId(currentUser.getId()).orElse(null);
+        if (moderator == null || !Boolean.TRUE.equals(moderator.getCanEditProducts())) {
+            return null;
+        }
+        return new ProductImportService.ImportContext(currentUser.getId(), moderator.getId(),
+                Set.copyOf(moderator.getCategories()));
+    }
+
+    private boolean isAdmin(UserDetailsImpl currentUser) {
+        return currentUser.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.controller.moderator;
 
+import com.entity.OrderStatus;
 import com.payload.response.AnalyticsSummary;
 import com.payload.response.ChartData;
 import com.service.AnalyticsService;
@@ -21,24 +22,29 @@ public class AnalyticsController {
     @PreAuthorize("hasRole('MODERATOR') or hasRole('ADMIN')")
     public ResponseEntity<AnalyticsSummary> getSummary(
             @RequestParam(defaultValue = "monthly") String range,
+            @RequestParam(required = false) OrderStatus status,
             @AuthenticationPrincipal UserDetailsImpl currentUser) {
-        return ResponseEntity.ok(analyticsService.getSummary(currentUser.getId(), range));
+        return ResponseEntity.ok(analyticsService.getSummary(currentUser.getId(), range, status));
     }
 
     @GetMapping("/orders-trend")
     @PreAuthorize("hasRole('MODERATOR') or hasRole('ADMIN')")
     public ResponseEntity<ChartData> getOrdersTrend(
             @RequestParam(defaultValue = "monthly") String range,
+            @RequestParam(defaultValue = "day") String groupBy,
+            @RequestParam(required = false) OrderStatus status,
             @AuthenticationPrincipal UserDetailsImpl currentUser) {
-        return ResponseEntity.ok(analyticsService.getOrdersTrend(currentUser.getId(), range));
+        return ResponseEntity.ok(analyticsService.getOrdersTrend(currentUser.getId(), range, groupBy, status));
     }
 
     @GetMapping("/revenue-trend")
     @PreAuthorize("hasRole('MODERATOR') or hasRole('ADMIN')")
     public ResponseEntity<ChartData> getRevenueTrend(
             @RequestParam(defaultValue = "monthly") String range,
+            @RequestParam(defaultValue = "day") String groupBy,
+            @RequestParam(required = false) OrderStatus status,
             @AuthenticationPrincipal UserDetailsImpl currentUser) {
-        return ResponseEntity.ok(analyticsService.getRevenueTrend(currentUser.getId(), range));
+        return ResponseEntity.ok(analyticsService.getRevenueTrend(currentUser.getId(), range, groupBy, status));
     }
 
     @GetMapping("/category-distribution")
@@ -5,7 +5,6 @@ import com.entity.Order;
 import com.entity.OrderStatus;
 import com.mapper.OrderMapper;
 import com.repository.OrderRepository;
-import com.service.EmailService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -28,9 +27,6 @@ public class ModeratorOrderController {
     @Autowired
     private OrderRepository orderRepository;
 
-    @Autowired
-    private EmailService emailService;
-
     @Autowired
     private com.service.OrderService orderService;
 
@@ -97,19 +93,8 @@ public class ModeratorOrderController {
             String statusStr = request.get("status");
             OrderStatus newStatus = OrderStatus.valueOf(statusStr);
 
-            order.setStatus(newStatus);
-            orderRepository.save(order);
-
-            // Send status update email
-            try {
-                emailService.sendOrderStatusUpdate(
-                        order.getUser().getEmail(),
-                        order.getId().toString(),
-                        newStatus.toString(),
-                        order.getUser().getName());
-            } catch (Exception e) {
-                System.err.println("Failed to send status update email: " + e.getMessage());
-            }
+            // Updates the sales rollups and sends the status update email once the change commits
+            orderService.updateOrderStatus(id, newStatus);
 
             Map<String, String> response = new HashMap<>();
             response.put("status", "success");
@@ -2,21 +2,22 @@ package com.controller.moderator;
 
 import com.entity.Product;
 // import com.entity.ProductVariant;
-// import com.service.ProductService;
-import com.service.InventoryService;
+import com.service.ProductService;
+import com.service.BulkStockService;
 import com.service.UserDetailsImpl;
+import com.payload.request.BulkStockUpdateRequest;
+import com.payload.response.BulkStockUpdateResponse;
 import com.payload.response.MessageResponse;
 import com.payload.response.ProductResponse;
-import com.mapper.ProductMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/moderator/procurement")
@@ -27,10 +28,10 @@ public class ProcurementController {
     private com.repository.ProductRepository productRepository;
 
     @Autowired
-    private ProductMapper productMapper;
+    private ProductService productService;
 
     @Autowired
-    private InventoryService inventoryService;
+    private BulkStockService bulkStockService;
 
     /**
      * Get list of master products available for procurement
@@ -38,32 +39,41 @@ public class ProcurementController {
     @GetMapping("/master-catalog")
     public ResponseEntity<List<ProductResponse>> getMasterCatalog() {
         List<Product> masters = productRepository.findByIsMasterTrue();
-        return ResponseEntity.ok(masters.stream()
-                .map(productMapper::toResponse)
-                .collect(Collectors.toList()));
+        return ResponseEntity.ok(productService.toListResponses(masters));
     }
 
     /**
      * Place a procurement order (Simple implementation: direct stock update)
      * In a real system, this would involve a supplier payment and shipping flow.
+     * Procured quantities are added to the current stock in one batch; send an
+     * Idempotency-Key so a retried submission isn't counted twice.
      */
     @PostMapping("/order")
     public ResponseEntity<?> placeProcurementOrder(
             @RequestBody List<Map<String, Object>> items,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetailsImpl currentUser) {
 
         try {
+            List<BulkStockUpdateRequest.Line> lines = new ArrayList<>();
             for (Map<String, Object> item : items) {
-                Long variantId = Long.valueOf(item.get("variantId").toString());
-                int quantity = Integer.parseInt(item.get("quantity").toString());
-
                 // For procurement, we simply increase the quantity of the moderator's variant
                 // This assumes the moderator already has the product/variant linked.
                 // If they don't, we'd need to "clone" the master product to their tenant.
-
-                inventoryService.updateStock(variantId, quantity);
+                BulkStockUpdateRequest.Line line = new BulkStockUpdateRequest.Line();
+                line.setVariantId(Long.valueOf(item.get("variantId").toString()));
+                line.setQuantity(Integer.parseInt(item.get("quantity").toString()));
+                line.setMode(BulkStockUpdateRequest.Mode.DELTA);
+                lines.add(line);
             }
 
+            BulkStockUpdateRequest request = new BulkStockUpdateRequest();
+            request.setItems(lines);
+            BulkStockUpdateResponse response = bulkStockService.apply(request, idempotencyKey);
+
+            if (response.getFailed() > 0) {
+                return ResponseEntity.badRequest().body(response);
+            }
             return ResponseEntity
                     .ok(new MessageResponse("Procurement order placed successfully and inventory updated."));
         } catch (Exception e) {
@@ -42,6 +42,9 @@ public class AuthController {
     @Autowired
     com.service.EmailService emailService;
 
+    @Autowired
+    com.service.VisitorService visitorService;
+
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         log.info("Attempting login for user: {}", loginRequest.getEmail());
@@ -56,6 +59,9 @@ public class AuthController {
                 .map(item -> item.getAuthority())
                 .collect(Collectors.toList());
 
+        convertVisitor(userDetails.getEmail(), loginRequest.getVisitorToken(),
+                userRepository.getReferenceById(userDetails.getId()));
+
         return ResponseEntity.ok(new JwtResponse(jwt,
                 userDetails.getId(),
                 userDetails.getName(),
@@ -85,6 +91,8 @@ public class AuthController {
 
         userRepository.save(user);
 
+        convertVisitor(user.getEmail(), signUpRequest.getVisitorToken(), user);
+
         // Send Welcome Email
         try {
             emailService.sendWelcomeEmail(user.getEmail(), user.getName());
@@ -120,4 +128,13 @@ public class AuthController {
                 userDetails.getEmail(),
                 roles));
     }
+
+    // Links the visitor record and merges the guest cart; never fails the login
+    private void convertVisitor(String email, String visitorToken, User user) {
+        try {
+            visitorService.convertVisitor(email, visitorToken, user);
+        } catch (Exception e) {
+            log.warn("Failed to convert visitor for {}: {}", email, e.getMessage());
+        }
+    }
 }
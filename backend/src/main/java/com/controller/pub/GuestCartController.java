@@ -0,0 +1,58 @@
+package com.controller.pub;
+
+import com.payload.request.CartItemRequest;
+import com.payload.response.CartResponseDTO;
+import com.service.CartService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Cart for visitors who are not logged in, identified by the visitor token
+ * from /api/visitors/track. Same responses as /api/cart; the cart is merged
+ * into the user's cart when the token is sent with signin or signup.
+ */
+@RestController
+@RequestMapping("/api/public/guest-cart/{visitorToken}")
+public class GuestCartController {
+
+    @Autowired
+    private CartService cartService;
+
+    @GetMapping
+    public ResponseEntity<CartResponseDTO> getCart(@PathVariable String visitorToken) {
+        return ResponseEntity.ok(cartService.getGuestCart(visitorToken));
+    }
+
+    @PostMapping("/add")
+    public ResponseEntity<CartResponseDTO> addItem(
+            @PathVariable String visitorToken,
+            @Valid @RequestBody CartItemRequest request) {
+
+        return ResponseEntity.ok(cartService.addGuestItem(visitorToken, request));
+    }
+
+    @PutMapping("/update/item/{cartItemId}")
+    public ResponseEntity<CartResponseDTO> updateItemById(
+            @PathVariable String visitorToken,
+            @PathVariable Long cartItemId,
+            @RequestBody java.util.Map<String, Integer> body) {
+
+        Integer quantity = body.get("quantity");
+        return ResponseEntity.ok(cartService.updateGuestItem(visitorToken, cartItemId, quantity));
+    }
+
+    @DeleteMapping("/remove/item/{cartItemId}")
+    public ResponseEntity<CartResponseDTO> removeItemById(
+            @PathVariable String visitorToken,
+            @PathVariable Long cartItemId) {
+
+        return ResponseEntity.ok(cartService.removeGuestItem(visitorToken, cartItemId));
+    }
+
+    @DeleteMapping("/clear")
+    public ResponseEntity<CartResponseDTO> clearCart(@PathVariable String visitorToken) {
+        return ResponseEntity.ok(cartService.clearGuestCart(visitorToken));
+    }
+}
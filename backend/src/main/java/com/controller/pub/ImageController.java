@@ -1,35 +1,51 @@
 package com.controller.pub;
 
-import com.repository.ProductImageRepository;
+import com.service.BlobMigrationService;
+import com.service.ImageMetadataCache;
+import com.service.ImageRenditionService;
+import com.util.FileResponseWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/images")
 public class ImageController {
 
     @Autowired
-    private ProductImageRepository productImageRepository;
+    private ImageMetadataCache imageMetadataCache;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private BlobMigrationService blobMigrationService;
+
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
 
     // @Autowired
     // private com.service.UserService userService;
 
     /**
-     * Serve product image by ID
+     * Serve product image by ID. An image row never changes what it points
+     * to (a new upload is a new row), so clients may cache it for good.
+     * With {@code w}, the smallest rendition at least that wide is served
+     * instead of the original (see ImageRenditionService).
      */
     @GetMapping("/{imageId}")
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
-    public ResponseEntity<byte[]> getImageById(@PathVariable Long imageId) {
-        return productImageRepository.findById(imageId)
-                .map(img -> {
-                    // Public access to all images
-                    return serveImage(img.getId());
-                })
-                .orElseGet(() -> servePlaceholder());
+    public void getImageById(@PathVariable Long imageId, @RequestParam(required = false) Integer w,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Public access to all images
+        serveImage(imageId, w, FileResponseWriter.CACHE_IMMUTABLE, request, response);
     }
 
     /**
@@ -49,100 +65,111 @@ public class ImageController {
      * However, let's also try to support the old URL structure if possible,
      * or at least make the old URL structure redirect or fetch *some* image.
      */
-    @Autowired
-    private com.repository.ProductRepository productRepository;
-
     @GetMapping("/product/{modelNo}/{imageNum}")
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
-    public ResponseEntity<byte[]> getProductImageLegacy(
+    public void getProductImageLegacy(
             @PathVariable Long modelNo,
-            @PathVariable int imageNum) {
-
-        return productRepository.findById(modelNo)
-                .map(product -> {
-                    if (product.getVariants().isEmpty())
-                        return null;
-
-                    // Try to find the image across all variants, or just first one
-                    // Frontend usually wants the first variant's images
-                    com.entity.ProductVariant variant = product.getVariants().get(0);
-                    if (variant.getImages().size() < imageNum)
-                        return null;
-
-                    com.entity.ProductImage image = variant.getImages().get(imageNum - 1);
-                    return serveImage(image.getId());
-                })
-                .map(res -> res) // Unwrap from possible null in map
-                .orElseGet(() -> servePlaceholder());
+            @PathVariable int imageNum,
+            @RequestParam(required = false) Integer w,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        // Frontend usually wants the first variant's images
+        List<Long> imageIds = imageMetadataCache.getFirstVariantImageIds(modelNo);
+        if (imageNum < 1 || imageIds.size() < imageNum) {
+            servePlaceholder(request, response);
+            return;
+        }
+        // Which image this URL names changes with the product, so it is revalidated
+        serveImage(imageIds.get(imageNum - 1), w, FileResponseWriter.CACHE_REVALIDATE, request, response);
     }
 
-    private final java.nio.file.Path uploadLocation = java.nio.file.Paths.get("uploads").toAbsolutePath().normalize();
-
-    private ResponseEntity<byte[]> serveImage(Long imageId) {
-        return productImageRepository.findById(imageId)
-                .map(img -> {
-                    byte[] data = img.getImageData();
-                    String imageUrl = img.getImageUrl();
-
-                    // If imageData is empty but imageUrl is present, try reading from disk
-                    if ((data == null || data.length == 0) && imageUrl != null && imageUrl.startsWith("/uploads/")) {
-                        try {
-                            String fileName = imageUrl.substring("/uploads/".length());
-                            java.nio.file.Path filePath = uploadLocation.resolve(fileName).normalize();
-                            if (java.nio.file.Files.exists(filePath)) {
-                                data = java.nio.file.Files.readAllBytes(filePath);
-                            }
-                        } catch (Exception e) {
-                            // Fallback to placeholder if file read fails
-                        }
-                    }
-
-                    if (data == null || data.length == 0) {
-                        return servePlaceholder();
-                    }
-
-                    HttpHeaders headers = new HttpHeaders();
-                    String mimeType = img.getImageType();
-
-                    // Fallback to extension check if on disk and mimeType is missing/generic
-                    if ((mimeType == null || mimeType.equals("application/octet-stream")) && imageUrl != null) {
-                        if (imageUrl.toLowerCase().endsWith(".jpg") || imageUrl.toLowerCase().endsWith(".jpeg")) {
-                            mimeType = "image/jpeg";
-                        } else if (imageUrl.toLowerCase().endsWith(".png")) {
-                            mimeType = "image/png";
-                        } else if (imageUrl.toLowerCase().endsWith(".webp")) {
-                            mimeType = "image/webp";
-                        }
-                    }
-
-                    headers.setContentType(MediaType.parseMediaType(
-                            mimeType != null ? mimeType : "image/jpeg"));
-                    headers.setContentLength(data.length);
-                    headers.setCacheControl("public, max-age=86400");
-
-                    return new ResponseEntity<byte[]>(data, headers, HttpStatus.OK);
-                })
-                .orElseGet(() -> servePlaceholder());
+    private volatile byte[] placeholder;
+
+    private void serveImage(Long imageId, Integer width, String cacheControl, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        ImageMetadataCache.ImageMeta meta = imageMetadataCache.get(imageId);
+        if (meta == null) {
+            servePlaceholder(request, response);
+            return;
+        }
+        // A legacy row with its bytes still in the database is moved to the file store first
+        if (meta.file() == null && !meta.noLegacyBytes()) {
+            if (blobMigrationService.externalizeImage(imageId) != null) {
+                meta = imageMetadataCache.get(imageId);
+            } else {
+                // Nothing to move: remember it so the next request goes straight to the placeholder
+                imageMetadataCache.rememberNoLegacyBytes(imageId);
+            }
+        }
+
+        // Image bytes are always streamed from disk
+        if (meta != null && meta.file() != null) {
+            ImageRenditionService.Rendition rendition = width != null && width > 0
+                    ? ImageRenditionService.Rendition.forWidth(width)
+                    : null;
+            if (rendition != null) {
+                if (serveRendition(meta, rendition, cacheControl, request, response)) {
+                    return;
+                }
+                // The original stands in for now, so this URL must not be cached for good
+                cacheControl = FileResponseWriter.CACHE_REVALIDATE;
+            }
+            try {
+                if (meta.fingerprint() == null) {
+                    meta = meta.withFingerprint(fileResponseWriter.fingerprint(meta.file()));
+                    imageMetadataCache.remember(meta);
+                }
+                fileResponseWriter.writeFile(request, response, meta.file(), meta.fingerprint(),
+                        meta.contentType(), cacheControl);
+                return;
+            } catch (NoSuchFileException e) {
+                imageMetadataCache.evict(imageId);
+            }
+        }
+        servePlaceholder(request, response);
     }
 
-    private ResponseEntity<byte[]> servePlaceholder() {
+    // False if the rendition does not exist (yet); it is queued and the original is served meanwhile
+    private boolean serveRendition(ImageMetadataCache.ImageMeta meta, ImageRenditionService.Rendition rendition,
+            String cacheControl, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = ImageRenditionService.pathOf(meta.file(), rendition);
+        FileResponseWriter.Fingerprint fingerprint = meta.renditions().get(rendition);
         try {
-            org.springframework.core.io.Resource resource = new org.springframework.core.io.ClassPathResource(
-                    "static/assets/imagenotavailableplaceholder.png");
-            if (resource.exists()) {
-                byte[] data = resource.getInputStream().readAllBytes();
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.IMAGE_PNG);
-                headers.setContentLength(data.length);
-                headers.setCacheControl("public, max-age=86400");
-                return new ResponseEntity<>(data, headers, HttpStatus.OK);
+            if (fingerprint == null) {
+                fingerprint = fileResponseWriter.fingerprint(file);
+                imageMetadataCache.remember(meta.withRendition(rendition, fingerprint));
             }
-        } catch (Exception e) {
-            // Log or ignore
+            fileResponseWriter.writeFile(request, response, file, fingerprint, "image/jpeg", cacheControl);
+            return true;
+        } catch (NoSuchFileException e) {
+            if (fingerprint != null) {
+                imageMetadataCache.evict(meta.imageId());
+            }
+            imageRenditionService.submit(meta.file());
+            return false;
+        }
+    }
+
+    private void servePlaceholder(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] data = placeholder;
+        if (data == null) {
+            try {
+                org.springframework.core.io.Resource resource = new org.springframework.core.io.ClassPathResource(
+                        "static/assets/imagenotavailableplaceholder.png");
+                if (resource.exists()) {
+                    data = resource.getInputStream().readAllBytes();
+                    placeholder = data;
+                }
+            } catch (Exception e) {
+                // Log or ignore
+            }
+        }
+        if (data != null) {
+            fileResponseWriter.writeBytes(request, response, data, "image/png", FileResponseWriter.CACHE_REVALIDATE);
+            return;
         }
         // Final fallback to a reliable public UI placeholder
-        return ResponseEntity.status(HttpStatus.FOUND)
-                .header(HttpHeaders.LOCATION, "https://placehold.co/600x600/e2e8f0/64748b?text=Image+Not+Found")
-                .build();
+        response.setStatus(HttpStatus.FOUND.value());
+        response.setHeader(HttpHeaders.LOCATION, "https://placehold.co/600x600/e2e8f0/64748b?text=Image+Not+Found");
     }
 }
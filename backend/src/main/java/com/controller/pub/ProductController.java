@@ -1,22 +1,28 @@
 package com.controller.pub;
 
 import com.entity.Product;
-import com.entity.ProductVariant;
 import com.payload.request.ProductRequest;
-import com.payload.response.FeaturedProductResponse;
+import com.payload.response.FacetedProductResponse;
 import com.payload.response.ProductResponse;
 import com.mapper.ProductMapper;
+import com.service.HomepageSnapshotService;
+import com.service.ProductDetailCache;
+import com.service.ProductFacetService;
 import com.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 import com.entity.User;
 import com.repository.UserRepository;
 import com.service.UserDetailsImpl;
@@ -35,6 +41,15 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductFacetService productFacetService;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    @Autowired
+    private HomepageSnapshotService homepageSnapshotService;
+
     @Autowired
     private ProductMapper productMapper;
 
@@ -51,61 +66,94 @@ public class ProductController {
             @RequestParam(defaultValue = "20") int size) {
         org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(page, size,
                 org.springframework.data.domain.Sort.by("modelNo").descending());
-        return ResponseEntity.ok(productService.getAllProducts(pageable).map(productMapper::toResponse));
+        return ResponseEntity.ok(productService.toListResponsePage(productService.getAllProducts(pageable)));
+    }
+
+    @GetMapping("/cursor")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<com.payload.response.CursorPage<ProductResponse>> getProductsByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productService.getProductsPage(after, Math.max(1, Math.min(size, 100))));
+    }
+
+    @GetMapping("/summaries")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<org.springframework.data.domain.Page<com.dto.ProductSummaryDTO>> getProductSummaries(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(
+                Math.max(0, page), Math.max(1, Math.min(size, 100)),
+                org.springframework.data.domain.Sort.by("modelNo").descending());
+        return ResponseEntity.ok(productService.getProductSummaries(pageable));
     }
 
     @GetMapping("/category/{category}/{subCategory}")
     @PreAuthorize("permitAll()")
-    public List<ProductResponse> getProductsByCategoryAndSubCategory(
+    public ResponseEntity<org.springframework.data.domain.Page<ProductResponse>> getProductsByCategoryAndSubCategory(
             @PathVariable String category,
-            @PathVariable String subCategory) {
-        return productService.getProductsByCategoryAndSubCategory(category, subCategory).stream()
-                .map(productMapper::toResponse).toList();
+            @PathVariable String subCategory,
+            @RequestParam(required = false) com.entity.ProductGroup productGroup,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(
+                Math.max(0, page), Math.max(1, Math.min(size, 100)),
+                org.springframework.data.domain.Sort.by("modelNo").descending());
+        return ResponseEntity.ok(productService.toListResponsePage(productService
+                .getProductsByCategoryAndSubCategory(category, subCategory, productGroup, brand, minPrice, maxPrice,
+                        pageable)));
     }
 
     @GetMapping("/categories/active")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<List<String>> getActiveCategories() {
-        return ResponseEntity.ok(productService.getActiveCategories().stream()
-                .map(Enum::name)
-                .collect(Collectors.toList()));
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public ResponseEntity<byte[]> getActiveCategories(WebRequest webRequest) {
+        return serveSnapshot(HomepageSnapshotService.Section.ACTIVE_CATEGORIES, webRequest);
     }
 
-    @GetMapping("/search")
+    @GetMapping("/facets")
     @PreAuthorize("permitAll()")
-    public java.util.List<com.payload.response.ProductSearchResponse> searchProducts(@RequestParam String q) {
-        List<Product> products = productService.searchProducts(q);
-        return products.stream().map(p -> {
-            com.payload.response.ProductSearchResponse dto = new com.payload.response.ProductSearchResponse();
-            dto.setModelNo(p.getModelNo());
-            dto.setName(p.getName());
-
-            // Derive info from first variant
-            if (!p.getVariants().isEmpty()) {
-                ProductVariant v = p.getVariants().get(0);
-                dto.setPrice(v.getPrice());
-                dto.setColor(v.getColor());
-
-                if (!v.getImages().isEmpty()) {
-                    String url = v.getImages().get(0).getImageUrl();
-                    if (url != null && url.startsWith("/")) {
-                        // Keep relative to serve via proxy correctly
-                    }
-                    dto.setImage1(url);
+    public ResponseEntity<FacetedProductResponse> getFacetedProducts(
+            @RequestParam(name = "f", required = false) List<String> filters,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        // Filters come as f=facet:value, e.g. ?f=category:MEN&f=color:Red&f=color:Blue
+        java.util.Map<String, java.util.Set<String>> selected = new java.util.HashMap<>();
+        if (filters != null) {
+            for (String filter : filters) {
+                int separator = filter.indexOf(':');
+                if (separator <= 0 || separator == filter.length() - 1) {
+                    continue;
                 }
+                selected.computeIfAbsent(filter.substring(0, separator).trim(), k -> new java.util.HashSet<>())
+                        .add(filter.substring(separator + 1).trim());
             }
+        }
+        return ResponseEntity.ok(productFacetService.search(selected,
+                org.springframework.data.domain.PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, 100)))));
+    }
 
-            dto.setCategory(p.getCategory() != null ? p.getCategory().name() : "");
-            dto.setBrandName(p.getBrandName());
-
-            return dto;
-        }).collect(Collectors.toList());
+    @GetMapping("/search")
+    @PreAuthorize("permitAll()")
+    public java.util.List<com.payload.response.ProductSearchResponse> searchProducts(@RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        // Ranked by relevance; page/size select a window of the ranking, clamped like the cursor endpoints
+        return productService.searchProducts(q, org.springframework.data.domain.PageRequest.of(Math.max(0, page),
+                Math.max(1, Math.min(size, 100))))
+                .getContent();
     }
 
     @GetMapping("/{modelNo}")
     @PreAuthorize("permitAll()")
+    // No surrounding transaction: cache hits never touch the database, misses
+    // load inside ProductService's own read-only transaction
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
     public ResponseEntity<ProductResponse> getProductByModelNo(@PathVariable Long modelNo) {
-        return ResponseEntity.ok(productMapper.toResponse(productService.getProductByModelNo(modelNo)));
+        return ResponseEntity.ok(productDetailCache.get(modelNo, productService::getProductResponse));
     }
 
     @GetMapping("/{modelNo}/similar")
@@ -117,8 +165,16 @@ public class ProductController {
 
     @GetMapping("/featured")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<List<FeaturedProductResponse>> getFeaturedProducts() {
-        return ResponseEntity.ok(productService.getFeaturedProducts());
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public ResponseEntity<byte[]> getFeaturedProducts(WebRequest webRequest) {
+        return serveSnapshot(HomepageSnapshotService.Section.FEATURED, webRequest);
+    }
+
+    @GetMapping("/trending")
+    @PreAuthorize("permitAll()")
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public ResponseEntity<byte[]> getTrendingProducts(WebRequest webRequest) {
+        return serveSnapshot(HomepageSnapshotService.Section.TRENDING, webRequest);
     }
 
     @GetMapping("/recommendations")
@@ -199,4 +255,23 @@ public class ProductController {
         return ResponseEntity
                 .ok(productService.getProductsByStyleCode(styleCode).stream().map(productMapper::toResponse).toList());
     }
+
+    // Homepage payloads are pre-serialized; clients revalidate with If-None-Match
+    private ResponseEntity<byte[]> serveSnapshot(HomepageSnapshotService.Section section, WebRequest webRequest) {
+        HomepageSnapshotService.Snapshot snapshot = homepageSnapshotService.get(section);
+        if (snapshot == null) {
+            // Never built: the first build failed (database unreachable), nothing to serve yet
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        if (webRequest.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.body());
+    }
 }
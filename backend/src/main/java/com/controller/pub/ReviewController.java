@@ -73,6 +73,17 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getAllReviews());
     }
 
+    /**
+     * Get reviews page by page (newest first). Pass nextCursor back as "after".
+     */
+    @GetMapping("/all/cursor")
+    @PreAuthorize("hasRole('MODERATOR') or hasRole('ADMIN')")
+    public ResponseEntity<com.payload.response.CursorPage<ReviewResponseDTO>> getReviewsByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(reviewService.getReviewsPage(after, Math.max(1, Math.min(size, 200))));
+    }
+
     /**
      * Get a single review by ID.
      */
@@ -1,8 +1,6 @@
 package com.controller.user;
 
-import com.entity.User;
 import com.payload.request.CartItemRequest;
-import com.repository.UserRepository;
 import com.service.CartService;
 import com.service.UserDetailsImpl;
 import jakarta.validation.Valid;
@@ -23,12 +21,9 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
-    @Autowired
-    private UserRepository userRepository;
-
     @GetMapping
     public ResponseEntity<CartResponseDTO> getCart() {
-        CartResponseDTO cart = cartService.getCartResponseByUser(getCurrentUser());
+        CartResponseDTO cart = cartService.getCartResponseByUser(currentUserId());
         return ResponseEntity.ok(cart);
     }
 
@@ -36,7 +31,7 @@ public class CartController {
     public ResponseEntity<CartResponseDTO> addItem(
             @Valid @RequestBody CartItemRequest request) {
 
-        CartResponseDTO cart = cartService.addItemToCart(getCurrentUser(), request);
+        CartResponseDTO cart = cartService.addItemToCart(currentUserId(), request);
         return ResponseEntity.ok(cart);
     }
 
@@ -46,7 +41,7 @@ public class CartController {
             @RequestBody java.util.Map<String, Integer> body) {
 
         Integer quantity = body.get("quantity");
-        CartResponseDTO cart = cartService.updateItemQuantity(getCurrentUser(), productModelNo, quantity);
+        CartResponseDTO cart = cartService.updateItemQuantity(currentUserId(), productModelNo, quantity);
         return ResponseEntity.ok(cart);
     }
 
@@ -56,7 +51,7 @@ public class CartController {
             @RequestBody java.util.Map<String, Integer> body) {
 
         Integer quantity = body.get("quantity");
-        CartResponseDTO cart = cartService.updateItemQuantityByItemId(getCurrentUser(), cartItemId, quantity);
+        CartResponseDTO cart = cartService.updateItemQuantityByItemId(currentUserId(), cartItemId, quantity);
         return ResponseEntity.ok(cart);
     }
 
@@ -64,7 +59,7 @@ public class CartController {
     public ResponseEntity<CartResponseDTO> removeItem(
             @PathVariable String productModelNo) {
 
-        CartResponseDTO cart = cartService.removeItemFromCart(getCurrentUser(), productModelNo);
+        CartResponseDTO cart = cartService.removeItemFromCart(currentUserId(), productModelNo);
         return ResponseEntity.ok(cart);
     }
 
@@ -72,22 +67,22 @@ public class CartController {
     public ResponseEntity<CartResponseDTO> removeItemById(
             @PathVariable Long cartItemId) {
 
-        CartResponseDTO cart = cartService.removeItemFromCartById(getCurrentUser(), cartItemId);
+        CartResponseDTO cart = cartService.removeItemFromCartById(currentUserId(), cartItemId);
         return ResponseEntity.ok(cart);
     }
 
     @DeleteMapping("/clear")
     public ResponseEntity<CartResponseDTO> clearCart() {
-        CartResponseDTO cart = cartService.clearCart(getCurrentUser());
+        CartResponseDTO cart = cartService.clearCart(currentUserId());
         return ResponseEntity.ok(cart);
     }
 
-    private User getCurrentUser() {
+    // Cart calls come from the token alone, without loading the user
+    private Long currentUserId() {
         UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext()
                 .getAuthentication()
                 .getPrincipal();
 
-        return userRepository.findById(
-                Objects.requireNonNull(userDetails.getId())).orElseThrow(() -> new RuntimeException("User not found"));
+        return Objects.requireNonNull(userDetails.getId());
     }
 }
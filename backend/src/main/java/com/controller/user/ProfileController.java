@@ -2,9 +2,13 @@ package com.controller.user;
 
 import com.entity.User;
 import com.repository.UserRepository;
+import com.service.BlobMigrationService;
 import com.service.UserDetailsImpl;
+import com.util.FileResponseWriter;
+import com.util.FileStorageUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,7 +19,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -30,6 +37,15 @@ public class ProfileController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
+
+    @Autowired
+    private BlobMigrationService blobMigrationService;
+
     /**
      * Get current user profile
      */
@@ -45,7 +61,8 @@ public class ProfileController {
         profile.put("mobile", user.getMobile());
         profile.put("gender", user.getGender());
         profile.put("role", user.getRole().name());
-        profile.put("hasProfilePicture", user.hasProfilePicture());
+        profile.put("hasProfilePicture", user.hasProfilePicture()
+                || blobMigrationService.externalizeProfilePicture(user.getId()) != null);
 
         return ResponseEntity.ok(profile);
     }
@@ -108,7 +125,8 @@ public class ProfileController {
         User user = userRepository.findById(Objects.requireNonNull(userDetails.getId()))
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        user.setProfilePicture(file.getBytes());
+        // The previous picture's file is collected once nothing names it
+        user.setProfilePicturePath(fileStorageUtil.storeFile(file));
         user.setProfilePictureType(contentType);
         userRepository.save(user);
 
@@ -116,22 +134,34 @@ public class ProfileController {
     }
 
     /**
-     * Get profile picture
+     * Get profile picture, streamed from the upload store without loading the user
      */
     @GetMapping("/picture")
-    public ResponseEntity<byte[]> getProfilePicture(@AuthenticationPrincipal UserDetailsImpl userDetails) {
-        User user = userRepository.findById(Objects.requireNonNull(userDetails.getId()))
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (!user.hasProfilePicture()) {
-            return ResponseEntity.notFound().build();
+    public void getProfilePicture(@AuthenticationPrincipal UserDetailsImpl userDetails, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Long userId = Objects.requireNonNull(userDetails.getId());
+        List<Object[]> rows = userRepository.findProfilePictureById(userId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("User not found");
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(Objects.requireNonNull(user.getProfilePictureType())));
-        headers.setContentLength(user.getProfilePicture().length);
+        String storedPath = (String) rows.get(0)[0];
+        String contentType = (String) rows.get(0)[1];
+        if (storedPath == null) {
+            storedPath = blobMigrationService.externalizeProfilePicture(userId);
+        }
+        Path file = fileStorageUtil.resolveStoredPath(storedPath);
+        if (file == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
 
-        return new ResponseEntity<>(user.getProfilePicture(), headers, HttpStatus.OK);
+        try {
+            fileResponseWriter.writeFile(request, response, file, contentType != null ? contentType : "image/jpeg",
+                    FileResponseWriter.CACHE_PRIVATE);
+        } catch (NoSuchFileException e) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+        }
     }
 
     /**
@@ -143,7 +173,7 @@ public class ProfileController {
         User user = userRepository.findById(Objects.requireNonNull(userDetails.getId()))
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        user.setProfilePicture(null);
+        user.setProfilePicturePath(null);
         user.setProfilePictureType(null);
         userRepository.save(user);
 
@@ -1,12 +1,11 @@
 package com.dto;
 
-import lombok.AllArgsConstructor;
+import com.entity.Category;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class ProductSummaryDTO {
     private long modelNo;
     private String name;
@@ -14,4 +13,36 @@ public class ProductSummaryDTO {
     private boolean isReturnable;
     private boolean isReplaceable;
     private boolean isSingleBrand;
+
+    // Catalog list view fields (filled by ProductRepository.findSummaries)
+    private String brandName;
+    private String category;
+    private Double price;
+    private double averageRating;
+    private int reviewCount;
+
+    public ProductSummaryDTO(long modelNo, String name, String img1, boolean isReturnable, boolean isReplaceable,
+            boolean isSingleBrand) {
+        this.modelNo = modelNo;
+        this.name = name;
+        this.img1 = img1;
+        this.isReturnable = isReturnable;
+        this.isReplaceable = isReplaceable;
+        this.isSingleBrand = isSingleBrand;
+    }
+
+    // JPQL constructor expression used by ProductRepository.findSummaries
+    public ProductSummaryDTO(Long modelNo, String name, String brandName, Category category, Double price,
+            Double averageRating, Integer reviewCount, Long imageId, Boolean isReturnable, Boolean isReplaceable,
+            Boolean isSingleBrand) {
+        // List tiles get the card rendition rather than the original upload
+        this(modelNo, name, imageId != null ? "/api/images/" + imageId + "?w=480" : null,
+                Boolean.TRUE.equals(isReturnable), Boolean.TRUE.equals(isReplaceable),
+                Boolean.TRUE.equals(isSingleBrand));
+        this.brandName = brandName;
+        this.category = category != null ? category.name() : null;
+        this.price = price;
+        this.averageRating = averageRating != null ? averageRating : 0.0;
+        this.reviewCount = reviewCount != null ? reviewCount : 0;
+    }
 }
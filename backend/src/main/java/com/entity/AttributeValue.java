@@ -6,7 +6,10 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 @Entity
-@Table(name = "attribute_values")
+@Table(name = "attribute_values", uniqueConstraints = {
+        // One row per value so concurrent creators converge on it (see AttributeDictionary)
+        @UniqueConstraint(name = "uk_attribute_value", columnNames = { "attribute_id", "value" })
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,54 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One row per (tenant, day) of order activity, maintained by SalesRollupService.
+ * tenantId 0 holds the platform-wide totals. Amounts cover non-cancelled
+ * orders only; "orders" counts every order placed that day, cancelled or not.
+ */
+@Entity
+@Table(name = "daily_sales_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_rollup_tenant_day", columnNames = { "tenant_id", "day" })
+})
+@Data
+@NoArgsConstructor
+public class DailySalesRollup {
+
+    public static final long PLATFORM_TENANT = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private Long tenantId;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long orders;
+
+    @Column(nullable = false)
+    private double gross;
+
+    @Column(nullable = false)
+    private double commission;
+
+    @Column(nullable = false)
+    private double net;
+
+    @Column(nullable = false)
+    private long cancelled;
+
+    @Column(nullable = false)
+    private long paid;
+
+    private LocalDateTime updatedAt;
+}
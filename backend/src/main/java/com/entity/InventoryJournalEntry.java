@@ -0,0 +1,33 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stock change of a hot variant that has been admitted in memory but not yet
+ * applied to product_variant.quantity. Written in the same transaction as the
+ * order, applied and deleted by HotSkuInventory's flush.
+ */
+@Entity
+@Table(name = "inventory_journal")
+@Data
+@NoArgsConstructor
+public class InventoryJournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "variant_id", nullable = false)
+    private Long variantId;
+
+    // Negative for sales, positive for restocks / cancellations
+    @Column(nullable = false)
+    private int delta;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,33 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A processed bulk stock update, keyed by the client's idempotency key. The
+ * stored response is returned as-is when the same key is sent again.
+ */
+@Entity
+@Table(name = "inventory_update_request")
+@Data
+@NoArgsConstructor
+public class InventoryUpdateRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "request_key", nullable = false, unique = true, length = 100)
+    private String requestKey;
+
+    private int lineCount;
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String response;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
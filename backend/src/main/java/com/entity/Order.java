@@ -2,13 +2,17 @@ package com.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Keyset pagination of the admin order list
+        @Index(name = "idx_orders_date_id", columnList = "order_date, id")
+})
 @Data
 public class Order {
 
@@ -23,6 +27,7 @@ public class Order {
 
     // Order items (LAZY fetch)
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     private List<OrderItem> items = new ArrayList<>();
 
     @Column(nullable = false)
@@ -6,6 +6,10 @@ import lombok.Data;
 
 @Entity
 @Data
+@Table(indexes = {
+        // Tenant analytics and exports filter items by tenant, then join to the order
+        @Index(name = "idx_order_item_tenant_order", columnList = "tenant_id, order_id")
+})
 public class OrderItem {
 
     @Id
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,6 +12,13 @@ import java.util.List;
 @Entity
 @Data
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@Table(indexes = {
+        // Catalog browse filters; model_no trailing so the default sort is served from the index
+        @Index(name = "idx_product_category_sub", columnList = "category, sub_category, model_no"),
+        @Index(name = "idx_product_group", columnList = "product_group, model_no"),
+        @Index(name = "idx_product_brand", columnList = "brand_name, model_no"),
+        @Index(name = "idx_product_tenant", columnList = "tenant_id")
+})
 public class Product implements java.io.Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -56,6 +64,7 @@ public class Product implements java.io.Serializable {
     private ProductGroup productGroup;
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
     @CollectionTable(name = "product_about", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "about_item")
     private List<String> aboutItems = new ArrayList<>();
@@ -118,7 +127,9 @@ public class Product implements java.io.Serializable {
      * =======================
      */
 
+    // Batch fetched so a page of products loads its variants in one query, not one per product
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
     private List<ProductVariant> variants = new ArrayList<>();
 
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
@@ -17,16 +17,12 @@ public class ProductImage {
     @JsonIgnore
     private ProductVariant variant;
 
+    // The bytes are a file behind this URL; the legacy image_data LONGBLOB column is no longer mapped
+    // (BlobMigrationService moves what is left in it)
     @Column(nullable = false, length = 1000)
     private String imageUrl;
 
     private boolean isPrimary;
 
-    @Lob
-    @Basic(fetch = FetchType.LAZY)
-    @Column(columnDefinition = "LONGBLOB")
-    @JsonIgnore
-    private byte[] imageData;
-
     private String imageType;
 }
@@ -3,6 +3,7 @@ package com.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,6 +12,9 @@ import java.util.List;
 @Data
 @Table(uniqueConstraints = {
         @UniqueConstraint(columnNames = { "model_no" }) // Removed color, size columns from constraint
+}, indexes = {
+        // Price-range filter in the catalog browse query
+        @Index(name = "idx_variant_product_price", columnList = "model_no, price")
 })
 public class ProductVariant {
 
@@ -24,6 +28,7 @@ public class ProductVariant {
     private Product product;
 
     @OneToMany(mappedBy = "variant", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     private List<VariantAttributeValue> attributeValues = new ArrayList<>();
 
     @Column(length = 255)
@@ -49,6 +54,7 @@ public class ProductVariant {
     private String colorHex;
 
     @OneToMany(mappedBy = "variant", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     @JsonIgnore
     private List<ProductImage> images = new ArrayList<>();
 
@@ -0,0 +1,7 @@
+package com.entity;
+
+public enum ReservationStatus {
+    HELD,
+    COMMITTED,
+    RELEASED
+}
@@ -0,0 +1,48 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock held for one line of an order that is waiting for payment. The stock
+ * itself is already taken from product_variant.quantity at checkout; this row
+ * records that it must be given back if payment does not arrive by expiresAt.
+ * Maintained by StockReservationService.
+ */
+@Entity
+@Table(name = "stock_reservation", indexes = {
+        @Index(name = "idx_reservation_status_expiry", columnList = "status, expires_at"),
+        @Index(name = "idx_reservation_order", columnList = "order_id")
+})
+@Data
+@NoArgsConstructor
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "variant_id", nullable = false)
+    private Long variantId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReservationStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime updatedAt;
+}
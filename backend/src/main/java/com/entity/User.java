@@ -47,12 +47,11 @@ public class User {
     @Column(name = "parent_id")
     private Long parentId;
 
-    // Profile picture stored as binary
-    @Lob
-    @Basic(fetch = FetchType.LAZY)
-    @Column(columnDefinition = "LONGBLOB")
+    // Stored path of the profile picture in the upload store (FileStorageUtil); the bytes never load with the
+    // user. The legacy profile_picture LONGBLOB column is emptied by BlobMigrationService.
+    @Column(length = 255)
     @com.fasterxml.jackson.annotation.JsonIgnore
-    private byte[] profilePicture;
+    private String profilePicturePath;
 
     @Column(length = 50)
     private String profilePictureType;
@@ -65,6 +64,6 @@ public class User {
 
     // Helper to check if user has profile picture
     public boolean hasProfilePicture() {
-        return profilePicture != null && profilePicture.length > 0;
+        return profilePicturePath != null;
     }
 }
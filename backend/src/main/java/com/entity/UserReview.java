@@ -9,6 +9,10 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
+@Table(indexes = {
+        // Keyset pagination of the moderation review list
+        @Index(name = "idx_review_date_id", columnList = "review_date, id")
+})
 public class UserReview {
 
     @Id
@@ -0,0 +1,22 @@
+package com.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by checkout inside the order transaction. Once it commits, the
+ * OrderPlacementPipeline adds the tracking record, renders the invoice and
+ * sends the confirmation email off the request thread.
+ */
+@Getter
+public class OrderPlacedEvent extends ApplicationEvent {
+
+    private final Long orderId;
+    private final String email;
+
+    public OrderPlacedEvent(Object source, Long orderId, String email) {
+        super(source);
+        this.orderId = orderId;
+        this.email = email;
+    }
+}
@@ -0,0 +1,79 @@
+package com.event;
+
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.OrderStatus;
+import com.entity.PaymentStatus;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Published when an order is placed, changes status, is paid, cancelled or
+ * deleted. Carries what the order counted for in the sales rollups before and
+ * after the change, so the rollup rows of the order's day can be adjusted by
+ * the difference once the change commits.
+ */
+@Getter
+public class OrderSalesChangedEvent extends ApplicationEvent {
+
+    /**
+     * Amounts of one tenant's items in an order.
+     */
+    public record TenantShare(double gross, double commission, double net) {
+    }
+
+    /**
+     * What an order counts for in the rollups in a given state.
+     */
+    public record Contribution(boolean cancelled, boolean paid, double gross, double commission, double net,
+            Map<Long, TenantShare> tenants) {
+
+        public static Contribution of(Order order) {
+            return of(order, order.getStatus(), order.getPaymentStatus());
+        }
+
+        /**
+         * The order's contribution as if it had the given status and payment
+         * status, e.g. the ones it had before a change.
+         */
+        public static Contribution of(Order order, OrderStatus status, PaymentStatus paymentStatus) {
+            double commission = 0;
+            double net = 0;
+            Map<Long, TenantShare> tenants = new TreeMap<>();
+            for (OrderItem item : order.getItems()) {
+                double itemCommission = item.getCommissionAmount() != null ? item.getCommissionAmount() : 0;
+                double itemNet = item.getNetAmount() != null ? item.getNetAmount() : 0;
+                commission += itemCommission;
+                net += itemNet;
+                if (item.getTenantId() != null) {
+                    double itemGross = item.getGrossAmount() != null ? item.getGrossAmount()
+                            : item.getPrice() * item.getQuantity();
+                    tenants.merge(item.getTenantId(), new TenantShare(itemGross, itemCommission, itemNet),
+                            (a, b) -> new TenantShare(a.gross() + b.gross(), a.commission() + b.commission(),
+                                    a.net() + b.net()));
+                }
+            }
+            return new Contribution(status == OrderStatus.CANCELLED, paymentStatus == PaymentStatus.COMPLETED,
+                    order.getTotalAmount(), commission, net, tenants);
+        }
+    }
+
+    private final LocalDate orderDay;
+
+    // Null when the order was just placed
+    private final Contribution before;
+
+    // Null when the order was deleted
+    private final Contribution after;
+
+    public OrderSalesChangedEvent(Object source, LocalDate orderDay, Contribution before, Contribution after) {
+        super(source);
+        this.orderDay = orderDay;
+        this.before = before;
+        this.after = after;
+    }
+}
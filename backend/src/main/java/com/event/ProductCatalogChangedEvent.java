@@ -0,0 +1,35 @@
+package com.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published whenever a product (or anything hanging off it: variants, images,
+ * stock, rating) is written. In-memory read models such as the search index
+ * listen for it and refresh the affected product once the write commits.
+ */
+@Getter
+public class ProductCatalogChangedEvent extends ApplicationEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // Stock and rating writes only touch detail fields, not what the catalog indexes hold
+        STOCK_UPDATED,
+        RATING_UPDATED;
+
+        public boolean isDetailOnly() {
+            return this == STOCK_UPDATED || this == RATING_UPDATED;
+        }
+    }
+
+    private final Long modelNo;
+    private final ChangeType changeType;
+
+    public ProductCatalogChangedEvent(Object source, Long modelNo, ChangeType changeType) {
+        super(source);
+        this.modelNo = modelNo;
+        this.changeType = changeType;
+    }
+}
@@ -2,30 +2,40 @@ package com.mapper;
 
 import com.dto.CartItemDTO;
 import com.dto.ProductSummaryDTO;
-import com.entity.Cart;
-import com.entity.CartItem;
 import com.entity.Product;
 import com.entity.ProductVariant;
 import com.payload.response.CartResponseDTO;
 
 import java.util.List;
+import java.util.Map;
 
 public class CartMapper {
 
-        public static CartResponseDTO toDTO(Cart cart) {
+        /**
+         * Builds the response from the stored lines (variant id to quantity) and
+         * the item views of their variants. Lines whose variant has no view
+         * (deleted) are left out. The line id is the variant id.
+         */
+        public static CartResponseDTO toDTO(Map<Long, Integer> lines, Map<Long, CartItemDTO> views) {
 
-                List<CartItemDTO> itemDTOs = cart.getItems().stream()
-                                .map(CartMapper::toItemDTO)
+                List<CartItemDTO> itemDTOs = lines.entrySet().stream()
+                                .filter(line -> views.containsKey(line.getKey()))
+                                .map(line -> withQuantity(views.get(line.getKey()), line.getValue()))
                                 .toList();
 
+                double totalAmount = itemDTOs.stream().mapToDouble(CartItemDTO::getTotal).sum();
+
                 return new CartResponseDTO(
-                                cart.getId(),
+                                null,
                                 itemDTOs,
-                                cart.getTotalAmount());
+                                totalAmount);
         }
 
-        private static CartItemDTO toItemDTO(CartItem item) {
-                ProductVariant variant = item.getVariant();
+        /**
+         * Cart line for one unit of the variant at its current price, cached by
+         * CartItemViewCache; {@link #toDTO} fills in quantity and total.
+         */
+        public static CartItemDTO toItemView(ProductVariant variant) {
                 Product product = variant.getProduct();
 
                 // Use first image of variant if available, else product image (which is now in
@@ -37,10 +47,6 @@ public class CartMapper {
                         imageUrl = variant.getImages().get(0).getImageUrl();
                 }
 
-                if (imageUrl != null && imageUrl.startsWith("/")) {
-                        // Keep relative to serve via proxy correctly
-                }
-
                 ProductSummaryDTO productDTO = new ProductSummaryDTO(
                                 product.getModelNo(),
                                 product.getName(),
@@ -50,14 +56,27 @@ public class CartMapper {
                                 product.isSingleBrand());
 
                 return new CartItemDTO(
-                                item.getId(),
+                                variant.getId(),
                                 productDTO,
                                 variant.getId(),
-                                item.getPrice(),
-                                item.getQuantity(),
-                                item.getPrice() * item.getQuantity(),
+                                variant.getPrice(),
+                                0,
+                                0.0,
                                 variant.getSize(),
                                 variant.getColor(),
                                 variant.getColorHex());
         }
+
+        private static CartItemDTO withQuantity(CartItemDTO view, int quantity) {
+                return new CartItemDTO(
+                                view.getId(),
+                                view.getProduct(),
+                                view.getVariantId(),
+                                view.getPrice(),
+                                quantity,
+                                view.getPrice() * quantity,
+                                view.getSize(),
+                                view.getColor(),
+                                view.getColorHex());
+        }
 }
@@ -9,12 +9,23 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Component
 public class ProductMapper {
 
     public ProductResponse toResponse(Product p) {
+        return toResponse(p, null);
+    }
+
+    /**
+     * Maps a product using pre-loaded image references (variantId -> images)
+     * instead of walking each variant's image collection. List endpoints load
+     * the references for a whole page in one query; pass null to fall back to
+     * the entity collections.
+     */
+    public ProductResponse toResponse(Product p, Map<Long, List<ProductVariantDTO.ProductImageDTO>> imagesByVariant) {
         if (p == null)
             return null;
 
@@ -43,7 +54,7 @@ public class ProductMapper {
 
         // Map Variants
         List<ProductVariantDTO> variantDTOs = p.getVariants().stream()
-                .map(this::toVariantDTO)
+                .map(v -> toVariantDTO(v, imagesByVariant))
                 .collect(Collectors.toList());
         res.setVariants(variantDTOs);
         res.setSizes(p.getVariants().stream()
@@ -80,6 +91,11 @@ public class ProductMapper {
     }
 
     public ProductVariantDTO toVariantDTO(ProductVariant v) {
+        return toVariantDTO(v, null);
+    }
+
+    public ProductVariantDTO toVariantDTO(ProductVariant v,
+            Map<Long, List<ProductVariantDTO.ProductImageDTO>> imagesByVariant) {
         ProductVariantDTO dto = new ProductVariantDTO();
         dto.setId(v.getId());
         dto.setColor(v.getColor());
@@ -90,17 +106,25 @@ public class ProductMapper {
         dto.setSku(v.getSku());
         dto.setStyleCode(v.getStyleCode());
 
-        List<ProductVariantDTO.ProductImageDTO> images = v.getImages().stream()
-                .map(img -> {
-                    ProductVariantDTO.ProductImageDTO imgDto = new ProductVariantDTO.ProductImageDTO();
-                    imgDto.setId(img.getId());
-                    // Use relative path; the frontend will prepend the correct API base URL
-                    imgDto.setImageUrl("/api/images/" + img.getId());
-                    imgDto.setPrimary(img.isPrimary());
-                    return imgDto;
-                }).collect(Collectors.toList());
+        List<ProductVariantDTO.ProductImageDTO> images;
+        if (imagesByVariant != null) {
+            images = new ArrayList<>(imagesByVariant.getOrDefault(v.getId(), List.of()));
+        } else {
+            images = v.getImages().stream()
+                    .map(img -> toImageDTO(img.getId(), img.isPrimary()))
+                    .collect(Collectors.toList());
+        }
         dto.setImages(images);
 
         return dto;
     }
+
+    public ProductVariantDTO.ProductImageDTO toImageDTO(Long imageId, boolean primary) {
+        ProductVariantDTO.ProductImageDTO imgDto = new ProductVariantDTO.ProductImageDTO();
+        imgDto.setId(imageId);
+        // Use relative path; the frontend will prepend the correct API base URL
+        imgDto.setImageUrl("/api/images/" + imageId);
+        imgDto.setPrimary(primary);
+        return imgDto;
+    }
 }
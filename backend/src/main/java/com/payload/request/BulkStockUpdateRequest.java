@@ -0,0 +1,31 @@
+package com.payload.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Stock changes for many variants at once. Each line either adds to the
+ * current stock (DELTA, may be negative) or replaces it (SET); lines without
+ * a mode use the request's mode, DELTA by default.
+ */
+@Data
+public class BulkStockUpdateRequest {
+
+    public enum Mode {
+        DELTA,
+        SET
+    }
+
+    @Data
+    public static class Line {
+        private Long variantId;
+        private Integer quantity;
+        private Mode mode;
+    }
+
+    // Optional, the Idempotency-Key header takes precedence
+    private String requestKey;
+    private Mode mode;
+    private List<Line> items;
+}
@@ -10,4 +10,7 @@ public class LoginRequest {
 
 	@NotBlank
 	private String password;
+
+	// Optional: guest cart of this visitor is merged into the user's cart
+	private String visitorToken;
 }
@@ -0,0 +1,47 @@
+package com.payload.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One line of a bulk product import: a variant plus the product it belongs
+ * to. Lines with the same name make up one product; the product fields are
+ * taken from the first of them.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductImportRow {
+    private String name;
+    private String brandName;
+    private String category;
+    private String subCategory;
+    private String productGroup;
+    private String description;
+    private String manufacturer;
+    private String packer;
+    private String importer;
+    private String itemWeight;
+    private String itemDimensions;
+    private String netQuantity;
+    private String genericName;
+    private Boolean isSingleBrand;
+    private Boolean isReturnable;
+    private Boolean isReplaceable;
+    private List<String> aboutItems;
+
+    private Double price;
+    private Integer quantity;
+    private String color;
+    private String colorHex;
+    private String size;
+    private String styleCode;
+    private String sku;
+    private List<String> imageUrls;
+
+    // Position in the source file, for error reports
+    @JsonIgnore
+    private long line;
+}
@@ -26,4 +26,7 @@ public class SignupRequest {
     // Optional fields based on User entity
     private String gender;
     private String mobile;
+
+    // Optional: guest cart of this visitor is merged into the user's cart
+    private String visitorToken;
 }
@@ -0,0 +1,40 @@
+package com.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk stock update, one result per request line in request
+ * order. replayed is true when the request key had already been processed and
+ * the stored outcome is returned instead.
+ */
+@Data
+@NoArgsConstructor
+public class BulkStockUpdateResponse {
+
+    public enum LineStatus {
+        UPDATED,
+        NOT_FOUND,
+        INSUFFICIENT_STOCK,
+        INVALID
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineResult {
+        private Long variantId;
+        private LineStatus status;
+        private String message;
+    }
+
+    private String requestKey;
+    private boolean replayed;
+    private int updated;
+    private int failed;
+    private List<LineResult> results = new ArrayList<>();
+}
@@ -0,0 +1,22 @@
+package com.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedProductResponse {
+    private List<ProductResponse> content;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+
+    // facet -> (value -> matching product count), values ordered by count
+    private Map<String, Map<String, Integer>> facets;
+}
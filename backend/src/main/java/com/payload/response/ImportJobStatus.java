@@ -0,0 +1,30 @@
+package com.payload.response;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress of a bulk product import as returned by the job-status endpoint.
+ * Counters grow while the job runs; errors holds the first problems found,
+ * each prefixed with its line number.
+ */
+@Data
+public class ImportJobStatus {
+    private String jobId;
+    private String fileName;
+    private String format;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsSkipped;
+    private long rowsFailed;
+    private long productsCreated;
+    private long variantsCreated;
+    private List<String> errors;
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
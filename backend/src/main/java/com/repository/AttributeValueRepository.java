@@ -13,4 +13,8 @@ public interface AttributeValueRepository extends JpaRepository<AttributeValue,
     List<AttributeValue> findByAttribute(ProductAttribute attribute);
 
     Optional<AttributeValue> findByAttributeAndValue(ProductAttribute attribute, String value);
+
+    // Dictionary warm-up: every value with its attribute in one query
+    @org.springframework.data.jpa.repository.Query("SELECT v FROM AttributeValue v JOIN FETCH v.attribute")
+    List<AttributeValue> findAllWithAttribute();
 }
@@ -4,8 +4,19 @@ import com.entity.Cart;
 import com.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUser(User user);
+
+    // Checkout and cart snapshots: items with their variant and product in one query
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items i "
+            + "LEFT JOIN FETCH i.variant v LEFT JOIN FETCH v.product WHERE c.user.id = :userId")
+    Optional<Cart> findWithItemsByUserId(@org.springframework.data.repository.query.Param("userId") Long userId);
+
+    // (variant id, quantity) of each saved cart line, to load a cart into the CartStore
+    @org.springframework.data.jpa.repository.Query("SELECT i.variant.id, i.quantity FROM CartItem i "
+            + "WHERE i.cart.user.id = :userId ORDER BY i.id")
+    List<Object[]> findLinesByUserId(@org.springframework.data.repository.query.Param("userId") Long userId);
 }
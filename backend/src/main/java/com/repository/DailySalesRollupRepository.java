@@ -0,0 +1,17 @@
+package com.repository;
+
+import com.entity.DailySalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, Long> {
+
+    List<DailySalesRollup> findByTenantIdAndDayGreaterThanEqualOrderByDayAsc(Long tenantId, LocalDate from);
+
+    // [orders, gross, cancelled] across all days for one tenant (0 = platform)
+    @org.springframework.data.jpa.repository.Query("SELECT COALESCE(SUM(r.orders), 0), COALESCE(SUM(r.gross), 0), "
+            + "COALESCE(SUM(r.cancelled), 0) FROM DailySalesRollup r WHERE r.tenantId = :tenantId")
+    List<Object[]> getTotals(@org.springframework.data.repository.query.Param("tenantId") Long tenantId);
+}
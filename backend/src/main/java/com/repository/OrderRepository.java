@@ -2,8 +2,12 @@ package com.repository;
 
 import com.entity.Order;
 import com.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUser(User user);
@@ -29,4 +33,73 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @org.springframework.data.jpa.repository.Query("SELECT FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d'), SUM(o.totalAmount) FROM Order o GROUP BY FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d')")
     List<Object[]> getRevenueTrend();
+
+    // Keyset pagination for the admin order table, newest first (orderDate, id)
+    @org.springframework.data.jpa.repository.EntityGraph(attributePaths = "user")
+    Slice<Order> findAllByOrderByOrderDateDescIdDesc(Pageable pageable);
+
+    @org.springframework.data.jpa.repository.EntityGraph(attributePaths = "user")
+    @org.springframework.data.jpa.repository.Query("SELECT o FROM Order o WHERE o.orderDate < :orderDate "
+            + "OR (o.orderDate = :orderDate AND o.id < :id) ORDER BY o.orderDate DESC, o.id DESC")
+    Slice<Order> findPageAfter(@org.springframework.data.repository.query.Param("orderDate") LocalDateTime orderDate,
+            @org.springframework.data.repository.query.Param("id") Long id, Pageable pageable);
+
+    // Flat rows for the admin export, one per order item (orders without items
+    // give one row with null item columns), ordered so an order's rows are
+    // adjacent. Scalar columns only: nothing enters the persistence context.
+    // A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows
+    // instead of buffering the whole result set.
+    @org.springframework.data.jpa.repository.QueryHints(@jakarta.persistence.QueryHint(
+            name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    @org.springframework.data.jpa.repository.Query("SELECT o.id, o.orderDate, o.status, o.paymentStatus, "
+            + "o.paymentMethod, o.totalAmount, o.discount, o.shippingAddress, u.id, u.name, u.email, "
+            + "i.id, i.productName, i.quantity, i.price, i.tenantId, v.size, v.color "
+            + "FROM Order o JOIN o.user u LEFT JOIN o.items i LEFT JOIN i.variant v "
+            + "WHERE (:status IS NULL OR o.status = :status) "
+            + "AND (:fromDate IS NULL OR o.orderDate >= :fromDate) "
+            + "AND (:toDate IS NULL OR o.orderDate < :toDate) "
+            + "AND (:tenantId IS NULL OR i.tenantId = :tenantId) "
+            + "ORDER BY o.id, i.id")
+    Stream<Object[]> streamExportRows(
+            @org.springframework.data.repository.query.Param("status") com.entity.OrderStatus status,
+            @org.springframework.data.repository.query.Param("fromDate") LocalDateTime fromDate,
+            @org.springframework.data.repository.query.Param("toDate") LocalDateTime toDate,
+            @org.springframework.data.repository.query.Param("tenantId") Long tenantId);
+
+    // ==================== ANALYTICS AGGREGATES ====================
+    // Rows are [day 'yyyy-MM-dd', value]; one row per day with activity, so the
+    // result grows with the date range, not with order history. Tenant variants
+    // count an order if any of its items belongs to the tenant and sum only
+    // that tenant's item amounts.
+
+    @org.springframework.data.jpa.repository.Query("SELECT FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d'), COUNT(o) FROM Order o "
+            + "WHERE o.orderDate > :start AND (:status IS NULL OR o.status = :status) "
+            + "GROUP BY FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d')")
+    List<Object[]> countOrdersByDay(@org.springframework.data.repository.query.Param("start") LocalDateTime start,
+            @org.springframework.data.repository.query.Param("status") com.entity.OrderStatus status);
+
+    @org.springframework.data.jpa.repository.Query("SELECT FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d'), COUNT(DISTINCT o.id) "
+            + "FROM OrderItem i JOIN i.order o "
+            + "WHERE o.orderDate > :start AND i.tenantId = :tenantId AND (:status IS NULL OR o.status = :status) "
+            + "GROUP BY FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d')")
+    List<Object[]> countTenantOrdersByDay(@org.springframework.data.repository.query.Param("start") LocalDateTime start,
+            @org.springframework.data.repository.query.Param("tenantId") Long tenantId, @org.springframework.data.repository.query.Param("status") com.entity.OrderStatus status);
+
+    @org.springframework.data.jpa.repository.Query("SELECT FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d'), SUM(o.totalAmount) FROM Order o "
+            + "WHERE o.orderDate > :start AND o.status <> com.entity.OrderStatus.CANCELLED "
+            + "AND (:status IS NULL OR o.status = :status) "
+            + "GROUP BY FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d')")
+    List<Object[]> sumRevenueByDay(@org.springframework.data.repository.query.Param("start") LocalDateTime start,
+            @org.springframework.data.repository.query.Param("status") com.entity.OrderStatus status);
+
+    @org.springframework.data.jpa.repository.Query("SELECT FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d'), "
+            + "SUM(COALESCE(i.grossAmount, i.price * i.quantity)) FROM OrderItem i JOIN i.order o "
+            + "WHERE o.orderDate > :start AND o.status <> com.entity.OrderStatus.CANCELLED "
+            + "AND i.tenantId = :tenantId AND (:status IS NULL OR o.status = :status) "
+            + "GROUP BY FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d')")
+    List<Object[]> sumTenantRevenueByDay(@org.springframework.data.repository.query.Param("start") LocalDateTime start,
+            @org.springframework.data.repository.query.Param("tenantId") Long tenantId, @org.springframework.data.repository.query.Param("status") com.entity.OrderStatus status);
+
+    @org.springframework.data.jpa.repository.Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o WHERE o.status <> com.entity.OrderStatus.CANCELLED")
+    Double getTotalRevenueExcludingCancelled();
 }
@@ -1,6 +1,7 @@
 package com.repository;
 
 import com.entity.OrderTracking;
+import com.entity.TrackingStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +10,6 @@ import java.util.List;
 @Repository
 public interface OrderTrackingRepository extends JpaRepository<OrderTracking, Long> {
     List<OrderTracking> findByOrderIdOrderByTimestampAsc(Long orderId);
+
+    boolean existsByOrderIdAndStatus(Long orderId, TrackingStatus status);
 }
@@ -3,5 +3,35 @@ package com.repository;
 import com.entity.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
+
+    // [variantId, imageId, isPrimary] for list views; never touches the image bytes
+    @org.springframework.data.jpa.repository.Query("SELECT i.variant.id, i.id, i.isPrimary FROM ProductImage i "
+            + "WHERE i.variant.id IN :variantIds ORDER BY i.id")
+    List<Object[]> findImageRefsByVariantIds(
+            @org.springframework.data.repository.query.Param("variantIds") Collection<Long> variantIds);
+
+    // [id, imageUrl, imageType, modelNo] of one image, without the bytes
+    @org.springframework.data.jpa.repository.Query("SELECT i.id, i.imageUrl, i.imageType, v.product.modelNo "
+            + "FROM ProductImage i JOIN i.variant v WHERE i.id = :id")
+    List<Object[]> findSourceById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    // Same for the newest images, to warm ImageMetadataCache
+    @org.springframework.data.jpa.repository.Query("SELECT i.id, i.imageUrl, i.imageType, v.product.modelNo "
+            + "FROM ProductImage i JOIN i.variant v ORDER BY i.id DESC")
+    List<Object[]> findSources(org.springframework.data.domain.Pageable pageable);
+
+    // Which of these stored paths at least one image row still names, for UploadGarbageCollector
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT i.imageUrl FROM ProductImage i "
+            + "WHERE i.imageUrl IN :imageUrls")
+    List<String> findReferencedImageUrls(
+            @org.springframework.data.repository.query.Param("imageUrls") Collection<String> imageUrls);
+
+    // Image ids of the product's first variant, for the legacy /product/{modelNo}/{n} URLs
+    @org.springframework.data.jpa.repository.Query("SELECT i.id FROM ProductImage i WHERE i.variant.id = "
+            + "(SELECT MIN(v.id) FROM ProductVariant v WHERE v.product.modelNo = :modelNo) ORDER BY i.id")
+    List<Long> findFirstVariantImageIds(@org.springframework.data.repository.query.Param("modelNo") Long modelNo);
 }
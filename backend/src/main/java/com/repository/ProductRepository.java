@@ -1,8 +1,13 @@
 package com.repository;
 
+import com.dto.ProductSummaryDTO;
 import com.entity.Product;
 import com.entity.Category;
+import com.entity.ProductGroup;
 import com.entity.SubCategory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
@@ -14,6 +19,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     List<Product> findByTenantId(Long tenantId);
 
+    @org.springframework.data.jpa.repository.EntityGraph(attributePaths = "variants")
     List<Product> findByIsMasterTrue();
 
     @org.springframework.data.jpa.repository.Query("SELECT p FROM Product p JOIN p.moderator m JOIN m.user u WHERE u.id = :userId")
@@ -23,6 +29,33 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     long countByCategory(Category category);
 
+    Slice<Product> findByCategory(Category category, Pageable pageable);
+
+    Slice<Product> findByCategoryAndModelNoNot(Category category, Long modelNo, Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT p.category FROM Product p WHERE p.category IS NOT NULL")
+    List<Category> findDistinctCategories();
+
+    // Catalog browse query: every filter is optional and evaluated by the database.
+    // A product matches the price range if any of its variants does.
+    @org.springframework.data.jpa.repository.Query("SELECT p FROM Product p WHERE "
+            + "(:category IS NULL OR p.category = :category) "
+            + "AND (:subCategory IS NULL OR p.subCategory = :subCategory) "
+            + "AND (:productGroup IS NULL OR p.productGroup = :productGroup) "
+            + "AND (:brandName IS NULL OR p.brandName = :brandName) "
+            + "AND ((:minPrice IS NULL AND :maxPrice IS NULL) OR EXISTS ("
+            + "SELECT v.id FROM ProductVariant v WHERE v.product = p "
+            + "AND (:minPrice IS NULL OR v.price >= :minPrice) "
+            + "AND (:maxPrice IS NULL OR v.price <= :maxPrice)))")
+    Page<Product> findCatalogPage(
+            @org.springframework.data.repository.query.Param("category") Category category,
+            @org.springframework.data.repository.query.Param("subCategory") SubCategory subCategory,
+            @org.springframework.data.repository.query.Param("productGroup") ProductGroup productGroup,
+            @org.springframework.data.repository.query.Param("brandName") String brandName,
+            @org.springframework.data.repository.query.Param("minPrice") Double minPrice,
+            @org.springframework.data.repository.query.Param("maxPrice") Double maxPrice,
+            Pageable pageable);
+
     // Fallback search using DB
     // @org.springframework.data.jpa.repository.Query("SELECT p FROM Product p WHERE
     // LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(p.description)
@@ -39,4 +72,17 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @org.springframework.data.jpa.repository.Query(value = "SELECT model_no FROM product ORDER BY RAND() LIMIT :limit", nativeQuery = true)
     List<Long> findRandomProductIds(@org.springframework.data.repository.query.Param("limit") int limit);
+
+    // Lightweight list view: one row per product, first image id and lowest variant price only
+    @org.springframework.data.jpa.repository.Query(value = "SELECT new com.dto.ProductSummaryDTO(p.modelNo, p.name, "
+            + "p.brandName, p.category, MIN(v.price), p.averageRating, p.reviewCount, MIN(i.id), "
+            + "p.isReturnable, p.isReplaceable, p.isSingleBrand) "
+            + "FROM Product p LEFT JOIN p.variants v LEFT JOIN v.images i GROUP BY p.modelNo",
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductSummaryDTO> findSummaries(Pageable pageable);
+
+    // Keyset pagination, newest first: the cursor is the last modelNo seen
+    Slice<Product> findAllByOrderByModelNoDesc(Pageable pageable);
+
+    Slice<Product> findByModelNoLessThanOrderByModelNoDesc(Long modelNo, Pageable pageable);
 }
@@ -2,7 +2,9 @@ package com.repository;
 
 import com.entity.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
 
@@ -12,4 +14,24 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     // Find low stock variants
     List<ProductVariant> findByQuantityLessThanOrderByQuantityAsc(int threshold,
             org.springframework.data.domain.Pageable pageable);
+
+    // Available-to-sell without loading the variant entity
+    @org.springframework.data.jpa.repository.Query("SELECT v.quantity FROM ProductVariant v WHERE v.id = :id")
+    Optional<Integer> findQuantityById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    @org.springframework.data.jpa.repository.Query("SELECT v.id FROM ProductVariant v WHERE v.id IN :ids")
+    List<Long> findExistingIds(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
+
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT v.product.modelNo FROM ProductVariant v "
+            + "WHERE v.id IN :ids")
+    List<Long> findModelNosByIds(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
+
+    // (id, color, size) of every variant of a product, for VariantIndex
+    @org.springframework.data.jpa.repository.Query("SELECT v.id, v.color, v.size FROM ProductVariant v "
+            + "WHERE v.product.modelNo = :modelNo")
+    List<Object[]> findVariantKeysByModelNo(@org.springframework.data.repository.query.Param("modelNo") Long modelNo);
+
+    // Cart lines: variants with their product, images are batch-loaded
+    @org.springframework.data.jpa.repository.Query("SELECT v FROM ProductVariant v JOIN FETCH v.product WHERE v.id IN :ids")
+    List<ProductVariant> findWithProductByIds(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
 }
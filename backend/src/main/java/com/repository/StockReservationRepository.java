@@ -0,0 +1,45 @@
+package com.repository;
+
+import com.entity.ReservationStatus;
+import com.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByOrderId(Long orderId);
+
+    // Conditional status change; the row count tells the caller whether it won
+    // a race against expiry / payment for this order
+    @Modifying
+    @org.springframework.data.jpa.repository.Query("UPDATE StockReservation r SET r.status = :to, r.updatedAt = :now "
+            + "WHERE r.orderId = :orderId AND r.status = :from")
+    int transition(@org.springframework.data.repository.query.Param("orderId") Long orderId,
+            @org.springframework.data.repository.query.Param("from") ReservationStatus from,
+            @org.springframework.data.repository.query.Param("to") ReservationStatus to,
+            @org.springframework.data.repository.query.Param("now") LocalDateTime now);
+
+    // [orderId, expiresAt] of every order still holding stock
+    @org.springframework.data.jpa.repository.Query("SELECT r.orderId, MIN(r.expiresAt) FROM StockReservation r "
+            + "WHERE r.status = com.entity.ReservationStatus.HELD GROUP BY r.orderId")
+    List<Object[]> findHeldOrderExpiries();
+
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT r.orderId FROM StockReservation r "
+            + "WHERE r.status = com.entity.ReservationStatus.HELD AND r.expiresAt <= :now")
+    List<Long> findExpiredOrderIds(@org.springframework.data.repository.query.Param("now") LocalDateTime now);
+
+    @org.springframework.data.jpa.repository.Query("SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r "
+            + "WHERE r.variantId = :variantId AND r.status = com.entity.ReservationStatus.HELD")
+    long sumHeldQuantity(@org.springframework.data.repository.query.Param("variantId") Long variantId);
+
+    // Locking read, so it sees a release committed by expiry after this transaction's snapshot
+    @org.springframework.data.jpa.repository.Query(value = "SELECT COUNT(*) FROM stock_reservation "
+            + "WHERE order_id = :orderId AND status = 'RELEASED' FOR SHARE", nativeQuery = true)
+    long countReleasedForShare(@org.springframework.data.repository.query.Param("orderId") Long orderId);
+
+    @Modifying
+    void deleteByOrderId(Long orderId);
+}
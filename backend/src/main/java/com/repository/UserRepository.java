@@ -11,7 +11,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     long countByRole(com.entity.Role role);
 
+    long countByCreatedAtAfter(java.time.LocalDateTime createdAt);
+
     java.util.List<User> findByRole(com.entity.Role role);
 
     java.util.List<User> findByParentId(Long parentId);
+
+    // [profilePicturePath, profilePictureType], without loading the user
+    @org.springframework.data.jpa.repository.Query("SELECT u.profilePicturePath, u.profilePictureType FROM User u "
+            + "WHERE u.id = :id")
+    java.util.List<Object[]> findProfilePictureById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    // Which of these stored paths at least one user still names, for UploadGarbageCollector
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT u.profilePicturePath FROM User u "
+            + "WHERE u.profilePicturePath IN :paths")
+    java.util.List<String> findReferencedProfilePicturePaths(
+            @org.springframework.data.repository.query.Param("paths") java.util.Collection<String> paths);
 }
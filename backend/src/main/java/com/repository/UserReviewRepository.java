@@ -2,9 +2,24 @@ package com.repository;
 
 import com.entity.UserReview;
 import com.entity.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface UserReviewRepository extends JpaRepository<UserReview, Long> {
     List<UserReview> findByProduct(Product product);
+
+    // Keyset pagination for the moderation list, newest first (reviewDate, id)
+    @org.springframework.data.jpa.repository.Query("SELECT r FROM UserReview r JOIN FETCH r.user JOIN FETCH r.product "
+            + "ORDER BY r.reviewDate DESC, r.id DESC")
+    Slice<UserReview> findFirstPage(Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT r FROM UserReview r JOIN FETCH r.user JOIN FETCH r.product "
+            + "WHERE r.reviewDate < :reviewDate OR (r.reviewDate = :reviewDate AND r.id < :id) "
+            + "ORDER BY r.reviewDate DESC, r.id DESC")
+    Slice<UserReview> findPageAfter(
+            @org.springframework.data.repository.query.Param("reviewDate") LocalDateTime reviewDate,
+            @org.springframework.data.repository.query.Param("id") Long id, Pageable pageable);
 }
@@ -1,6 +1,6 @@
 package com.service;
 
-import com.entity.Order;
+import com.entity.DailySalesRollup;
 import com.entity.OrderStatus;
 import com.payload.response.AnalyticsSummary;
 import com.payload.response.ChartData;
@@ -10,12 +10,15 @@ import com.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,6 +36,9 @@ public class AnalyticsService {
     @Autowired
     private com.repository.ModeratorRepository moderatorRepository;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
     public com.payload.response.DashboardResponse getDashboardStats() {
         com.payload.response.DashboardResponse response = new com.payload.response.DashboardResponse();
 
@@ -41,13 +47,8 @@ public class AnalyticsService {
         response.setTotalUsers(userRepository.count());
         response.setTotalProducts(productRepository.count());
 
-        // Calculate Revenue (Sum of non-cancelled orders)
-        List<Order> allOrders = orderRepository.findAll();
-        double revenue = allOrders.stream()
-                .filter(o -> o.getStatus() != OrderStatus.CANCELLED)
-                .mapToDouble(Order::getTotalAmount)
-                .sum();
-        response.setTotalRevenue(revenue);
+        // Calculate Revenue (Sum of non-cancelled orders, from the daily rollups)
+        response.setTotalRevenue(salesRollupService.getTotals(null)[1]);
 
         // Role counts
         response.setAdminCount(userRepository.countByRole(com.entity.Role.ADMIN));
@@ -72,74 +73,51 @@ public class AnalyticsService {
     }
 
     public AnalyticsSummary getSummary(Long moderatorId, String range) {
+        return getSummary(moderatorId, range, null);
+    }
+
+    public AnalyticsSummary getSummary(Long moderatorId, String range, OrderStatus status) {
         Long tenantId = getTenantId(moderatorId);
         LocalDateTime startDate = getStartDate(range);
 
-        List<Order> allOrders = orderRepository.findAll();
-        List<Order> filteredOrders = allOrders.stream()
-                .filter(o -> o.getOrderDate().isAfter(startDate))
-                .filter(o -> tenantId == null || o.getItems().stream().anyMatch(i -> tenantId.equals(i.getTenantId())))
-                .collect(Collectors.toList());
-
-        double revenue = filteredOrders.stream()
-                .filter(o -> o.getStatus() != OrderStatus.CANCELLED)
-                .mapToDouble(o -> {
-                    if (tenantId == null)
-                        return o.getTotalAmount();
-                    return o.getItems().stream()
-                            .filter(i -> tenantId.equals(i.getTenantId()))
-                            .mapToDouble(i -> i.getGrossAmount() != null ? i.getGrossAmount()
-                                    : (i.getPrice() * i.getQuantity()))
-                            .sum();
-                })
+        // Totals are the sums of the daily aggregates; the database does the scanning
+        long totalOrders = Math.round(dailyOrderCounts(startDate, tenantId, status).values().stream()
+                .mapToDouble(Double::doubleValue)
+                .sum());
+        double revenue = dailyRevenue(startDate, tenantId, status).values().stream()
+                .mapToDouble(Double::doubleValue)
                 .sum();
 
-        long newCustomers = userRepository.findAll().stream()
-                .filter(u -> u.getCreatedAt() != null && u.getCreatedAt().isAfter(startDate))
-                .count();
+        long newCustomers = userRepository.countByCreatedAtAfter(startDate);
 
-        double avgOrderValue = filteredOrders.isEmpty() ? 0 : revenue / filteredOrders.size();
+        double avgOrderValue = totalOrders == 0 ? 0 : revenue / totalOrders;
 
         return AnalyticsSummary.builder()
                 .totalRevenue(revenue)
-                .totalOrders(filteredOrders.size())
+                .totalOrders((int) totalOrders)
                 .newCustomers((int) newCustomers)
                 .avgOrderValue(Math.round(avgOrderValue * 100.0) / 100.0)
                 .build();
     }
 
     public ChartData getOrdersTrend(Long moderatorId, String range) {
+        return getOrdersTrend(moderatorId, range, null, null);
+    }
+
+    public ChartData getOrdersTrend(Long moderatorId, String range, String groupBy, OrderStatus status) {
         Long tenantId = getTenantId(moderatorId);
         LocalDateTime startDate = getStartDate(range);
-        List<Order> orders = orderRepository.findAll().stream()
-                .filter(o -> o.getOrderDate().isAfter(startDate))
-                .filter(o -> tenantId == null || o.getItems().stream().anyMatch(i -> tenantId.equals(i.getTenantId())))
-                .collect(Collectors.toList());
-
-        Map<String, Long> groupedStats = groupOrdersByDate(orders, range);
-
-        return ChartData.builder()
-                .labels(new ArrayList<>(groupedStats.keySet()))
-                .data(groupedStats.values().stream().map(Long::doubleValue).collect(Collectors.toList()))
-                .label("Orders")
-                .build();
+        return toChart(dailyOrderCounts(startDate, tenantId, status), parseGranularity(groupBy), "Orders");
     }
 
     public ChartData getRevenueTrend(Long moderatorId, String range) {
+        return getRevenueTrend(moderatorId, range, null, null);
+    }
+
+    public ChartData getRevenueTrend(Long moderatorId, String range, String groupBy, OrderStatus status) {
         Long tenantId = getTenantId(moderatorId);
         LocalDateTime startDate = getStartDate(range);
-        List<Order> orders = orderRepository.findAll().stream()
-                .filter(o -> o.getOrderDate().isAfter(startDate) && o.getStatus() != OrderStatus.CANCELLED)
-                .filter(o -> tenantId == null || o.getItems().stream().anyMatch(i -> tenantId.equals(i.getTenantId())))
-                .collect(Collectors.toList());
-
-        Map<String, Double> groupedStats = groupRevenueByDate(orders, range, tenantId);
-
-        return ChartData.builder()
-                .labels(new ArrayList<>(groupedStats.keySet()))
-                .data(new ArrayList<>(groupedStats.values()))
-                .label("Revenue")
-                .build();
+        return toChart(dailyRevenue(startDate, tenantId, status), parseGranularity(groupBy), "Revenue");
     }
 
     // Overload for simplified call
@@ -176,31 +154,85 @@ public class AnalyticsService {
         return now.minusMonths(1); // Default
     }
 
-    private Map<String, Long> groupOrdersByDate(List<Order> orders, String range) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd");
-        return orders.stream()
-                .sorted((a, b) -> a.getOrderDate().compareTo(b.getOrderDate()))
-                .collect(Collectors.groupingBy(
-                        o -> o.getOrderDate().format(formatter),
-                        java.util.LinkedHashMap::new,
-                        Collectors.counting()));
-    }
-
-    private Map<String, Double> groupRevenueByDate(List<Order> orders, String range, Long tenantId) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd");
-        return orders.stream()
-                .sorted((a, b) -> a.getOrderDate().compareTo(b.getOrderDate()))
-                .collect(Collectors.groupingBy(
-                        o -> o.getOrderDate().format(formatter),
-                        java.util.LinkedHashMap::new,
-                        Collectors.summingDouble(o -> {
-                            if (tenantId == null)
-                                return o.getTotalAmount();
-                            return o.getItems().stream()
-                                    .filter(i -> tenantId.equals(i.getTenantId()))
-                                    .mapToDouble(i -> i.getGrossAmount() != null ? i.getGrossAmount()
-                                            : (i.getPrice() * i.getQuantity()))
-                                    .sum();
-                        })));
+    private enum Granularity {
+        DAY,
+        WEEK,
+        MONTH
+    }
+
+    private static final DateTimeFormatter DAY_LABEL = DateTimeFormatter.ofPattern("MMM dd");
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM yyyy");
+
+    private Granularity parseGranularity(String groupBy) {
+        if ("week".equalsIgnoreCase(groupBy) || "weekly".equalsIgnoreCase(groupBy))
+            return Granularity.WEEK;
+        if ("month".equalsIgnoreCase(groupBy) || "monthly".equalsIgnoreCase(groupBy))
+            return Granularity.MONTH;
+        return Granularity.DAY;
+    }
+
+    // Unfiltered series come from the daily rollups (one row per day); a status
+    // filter isn't captured by the rollups, so it falls back to aggregating orders
+    private TreeMap<LocalDate, Double> dailyOrderCounts(LocalDateTime startDate, Long tenantId, OrderStatus status) {
+        if (status == null) {
+            return fromRollups(startDate, tenantId, DailySalesRollup::getOrders);
+        }
+        return toDailySeries(tenantId == null
+                ? orderRepository.countOrdersByDay(startDate, status)
+                : orderRepository.countTenantOrdersByDay(startDate, tenantId, status));
+    }
+
+    private TreeMap<LocalDate, Double> dailyRevenue(LocalDateTime startDate, Long tenantId, OrderStatus status) {
+        if (status == null) {
+            return fromRollups(startDate, tenantId, DailySalesRollup::getGross);
+        }
+        return toDailySeries(tenantId == null
+                ? orderRepository.sumRevenueByDay(startDate, status)
+                : orderRepository.sumTenantRevenueByDay(startDate, tenantId, status));
+    }
+
+    private TreeMap<LocalDate, Double> fromRollups(LocalDateTime startDate, Long tenantId,
+            java.util.function.ToDoubleFunction<DailySalesRollup> metric) {
+        TreeMap<LocalDate, Double> series = new TreeMap<>();
+        for (DailySalesRollup rollup : salesRollupService.getDailyRollups(tenantId, startDate.toLocalDate())) {
+            double value = metric.applyAsDouble(rollup);
+            // Zero rows are days whose orders were all deleted
+            if (rollup.getOrders() > 0 && value != 0) {
+                series.put(rollup.getDay(), value);
+            }
+        }
+        return series;
+    }
+
+    private TreeMap<LocalDate, Double> toDailySeries(List<Object[]> rows) {
+        TreeMap<LocalDate, Double> series = new TreeMap<>();
+        for (Object[] row : rows) {
+            if (row[0] == null || row[1] == null)
+                continue;
+            series.put(LocalDate.parse(row[0].toString()), ((Number) row[1]).doubleValue());
+        }
+        return series;
+    }
+
+    // Days arrive in order, so week/month buckets come out in order too
+    private ChartData toChart(TreeMap<LocalDate, Double> daily, Granularity granularity, String label) {
+        Map<String, Double> buckets = new LinkedHashMap<>();
+        daily.forEach((day, value) -> buckets.merge(bucketLabel(day, granularity), value, Double::sum));
+        return ChartData.builder()
+                .labels(new ArrayList<>(buckets.keySet()))
+                .data(new ArrayList<>(buckets.values()))
+                .label(label)
+                .build();
+    }
+
+    private String bucketLabel(LocalDate day, Granularity granularity) {
+        switch (granularity) {
+            case WEEK:
+                return "Week of " + day.with(DayOfWeek.MONDAY).format(DAY_LABEL);
+            case MONTH:
+                return day.format(MONTH_LABEL);
+            default:
+                return day.format(DAY_LABEL);
+        }
     }
 }
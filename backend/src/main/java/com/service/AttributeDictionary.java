@@ -0,0 +1,180 @@
+package com.service;
+
+import com.entity.AttributeValue;
+import com.entity.ProductAttribute;
+import com.repository.AttributeValueRepository;
+import com.repository.ProductAttributeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AttributeDictionary
+ * ===================
+ *
+ * Process-wide map of every ProductAttribute and AttributeValue, so resolving
+ * "Size=M" while saving variants is a map lookup instead of two queries.
+ * Loaded at startup; values are keyed case-insensitively, matching the
+ * database collation.
+ *
+ * Missing entries are created in their own short transaction (so the id
+ * handed out always exists, whatever happens to the caller's transaction)
+ * under a per-key lock; the unique constraints on attribute name and
+ * (attribute, value) settle races with other instances, the loser re-reads
+ * the winner's row. Entries are detached entities shared between threads and
+ * must not be modified by callers; metadata changes go through
+ * {@link #resolve}.
+ */
+@Service
+@Slf4j
+public class AttributeDictionary {
+
+    @Autowired
+    private ProductAttributeRepository attributeRepository;
+
+    @Autowired
+    private AttributeValueRepository valueRepository;
+
+    private final TransactionTemplate ownTransaction;
+
+    private final Map<String, ProductAttribute> attributes = new ConcurrentHashMap<>();
+    private final Map<String, AttributeValue> values = new ConcurrentHashMap<>();
+
+    // Serializes creation per key without blocking lookups of other keys
+    private final Map<String, Object> creationLocks = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    public AttributeDictionary(PlatformTransactionManager transactionManager) {
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        long start = System.currentTimeMillis();
+        ownTransaction.executeWithoutResult(status -> {
+            attributeRepository.findAll().forEach(attribute -> attributes.put(attributeKey(attribute.getName()),
+                    attribute));
+            valueRepository.findAllWithAttribute().forEach(value -> values.putIfAbsent(
+                    valueKey(value.getAttribute().getName(), value.getValue()), value));
+        });
+        loaded = true;
+        log.info("Attribute dictionary loaded {} attributes and {} values in {} ms", attributes.size(),
+                values.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns the value of the attribute, creating attribute and value if
+     * needed. A non-null metadata (colour hex) different from the stored one
+     * replaces it.
+     */
+    public AttributeValue resolve(String attributeName, String value, String metadata) {
+        if (!loaded) {
+            load();
+        }
+        String key = valueKey(attributeName, value);
+        AttributeValue current = values.get(key);
+        if (current != null && (metadata == null || metadata.equals(current.getMetadata()))) {
+            return current;
+        }
+
+        synchronized (creationLocks.computeIfAbsent(key, k -> new Object())) {
+            current = values.get(key);
+            if (current == null) {
+                current = create(attributeName, value, metadata);
+            } else if (metadata != null && !metadata.equals(current.getMetadata())) {
+                current = updateMetadata(current, metadata);
+            }
+            values.put(key, current);
+            return current;
+        }
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    // Helper methods
+
+    private ProductAttribute attribute(String name) {
+        String key = attributeKey(name);
+        ProductAttribute attribute = attributes.get(key);
+        if (attribute != null) {
+            return attribute;
+        }
+        synchronized (creationLocks.computeIfAbsent("attribute:" + key, k -> new Object())) {
+            attribute = attributes.get(key);
+            if (attribute == null) {
+                attribute = createOrFind(
+                        () -> {
+                            ProductAttribute created = new ProductAttribute();
+                            created.setName(name);
+                            return attributeRepository.save(created);
+                        },
+                        () -> attributeRepository.findByName(name).orElse(null));
+                attributes.put(key, attribute);
+            }
+            return attribute;
+        }
+    }
+
+    private AttributeValue create(String attributeName, String value, String metadata) {
+        ProductAttribute attribute = attribute(attributeName);
+        AttributeValue created = createOrFind(
+                () -> {
+                    AttributeValue newValue = new AttributeValue();
+                    newValue.setAttribute(attribute);
+                    newValue.setValue(value);
+                    newValue.setMetadata(metadata);
+                    return valueRepository.save(newValue);
+                },
+                () -> valueRepository.findByAttributeAndValue(attribute, value).orElse(null));
+        // Keep the (detached) attribute initialized for callers that read its name
+        created.setAttribute(attribute);
+        if (metadata != null && !metadata.equals(created.getMetadata())) {
+            return updateMetadata(created, metadata);
+        }
+        return created;
+    }
+
+    private AttributeValue updateMetadata(AttributeValue current, String metadata) {
+        AttributeValue updated = new AttributeValue(current.getId(), current.getAttribute(), current.getValue(),
+                metadata);
+        ownTransaction.executeWithoutResult(status -> valueRepository.findById(current.getId())
+                .ifPresent(stored -> stored.setMetadata(metadata)));
+        return updated;
+    }
+
+    /**
+     * Inserts in a transaction of its own; if another instance inserted the
+     * same key first, returns that row instead.
+     */
+    private <T> T createOrFind(java.util.function.Supplier<T> insert, java.util.function.Supplier<T> find) {
+        try {
+            return ownTransaction.execute(status -> insert.get());
+        } catch (DataIntegrityViolationException e) {
+            return Objects.requireNonNull(ownTransaction.execute(status -> find.get()),
+                    "Attribute entry vanished after a duplicate insert");
+        }
+    }
+
+    private static String attributeKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String valueKey(String attributeName, String value) {
+        return attributeKey(attributeName) + "=" + value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,193 @@
+package com.service;
+
+import com.util.FileStorageUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * BlobMigrationService
+ * ====================
+ *
+ * Moves the bytes of the legacy LONGBLOB columns, product_image.image_data
+ * and users.profile_picture, into the upload store (FileStorageUtil) and
+ * points the row at the stored file instead. The entities no longer map
+ * those columns, so loading a User or ProductImage never pulls picture bytes
+ * through JDBC; the columns are only read here, one row at a time, streamed
+ * from the result set into the store.
+ *
+ * A scheduled job works through the rows in batches of
+ * app.storage.blob-migration.batch-size. Until it is done, a row that is
+ * needed before its turn (its picture is requested, or an image row is
+ * copied) is moved on the spot. Once both columns are empty the job logs it
+ * and does nothing more; the columns can then be dropped.
+ */
+@Service
+@Slf4j
+public class BlobMigrationService {
+
+    private static final String IMAGE_IDS_SQL = "SELECT id FROM product_image WHERE id > ? AND image_data IS NOT NULL "
+            + "ORDER BY id LIMIT ?";
+    private static final String IMAGE_DATA_SQL = "SELECT image_type, image_data FROM product_image "
+            + "WHERE id = ? AND LENGTH(image_data) > 0";
+    private static final String EXTERNALIZE_IMAGE_SQL = "UPDATE product_image SET image_url = ?, image_data = NULL "
+            + "WHERE id = ?";
+
+    private static final String USER_IDS_SQL = "SELECT id FROM users WHERE id > ? AND profile_picture IS NOT NULL "
+            + "ORDER BY id LIMIT ?";
+    private static final String PROFILE_PICTURE_SQL = "SELECT profile_picture_type, profile_picture FROM users "
+            + "WHERE id = ? AND LENGTH(profile_picture) > 0";
+    private static final String EXTERNALIZE_PROFILE_PICTURE_SQL = "UPDATE users SET profile_picture_path = ?, "
+            + "profile_picture = NULL WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    @Autowired
+    private ImageMetadataCache imageMetadataCache;
+
+    @Value("${app.storage.blob-migration.batch-size:20}")
+    private int batchSize;
+
+    private final TransactionTemplate rowTransaction;
+
+    // Keyset cursors of the job, and whether a column has been emptied
+    private long lastImageId;
+    private long lastUserId;
+    private volatile boolean imagesDone;
+    private volatile boolean usersDone;
+
+    public BlobMigrationService(PlatformTransactionManager transactionManager) {
+        // Joins the caller's transaction when there is one
+        this.rowTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.blob-migration.interval-ms:5000}",
+            initialDelayString = "${app.storage.blob-migration.initial-delay-ms:15000}")
+    public synchronized void migrateBatch() {
+        if (!imagesDone) {
+            try {
+                List<Long> imageIds = jdbcTemplate.queryForList(IMAGE_IDS_SQL, Long.class, lastImageId, batchSize);
+                for (Long imageId : imageIds) {
+                    externalizeImage(imageId);
+                    lastImageId = imageId;
+                }
+                if (imageIds.isEmpty()) {
+                    imagesDone = true;
+                    log.info("All product image bytes are in the upload store; product_image.image_data is unused");
+                }
+            } catch (BadSqlGrammarException e) {
+                // Schema created after the column was unmapped: nothing to migrate
+                imagesDone = true;
+            } catch (RuntimeException e) {
+                log.warn("Product image migration failed after image {}: {}", lastImageId, e.getMessage());
+            }
+        }
+
+        if (!usersDone) {
+            try {
+                List<Long> userIds = jdbcTemplate.queryForList(USER_IDS_SQL, Long.class, lastUserId, batchSize);
+                for (Long userId : userIds) {
+                    externalizeProfilePicture(userId);
+                    lastUserId = userId;
+                }
+                if (userIds.isEmpty()) {
+                    usersDone = true;
+                    log.info("All profile pictures are in the upload store; users.profile_picture is unused");
+                }
+            } catch (BadSqlGrammarException e) {
+                usersDone = true;
+            } catch (RuntimeException e) {
+                log.warn("Profile picture migration failed after user {}: {}", lastUserId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves the image's database bytes to the upload store. Returns the new
+     * image URL, or null if the row has no bytes in the database.
+     */
+    public String externalizeImage(Long imageId) {
+        if (imagesDone) {
+            return null;
+        }
+        String storedPath = rowTransaction.execute(status -> {
+            String path = jdbcTemplate.query(IMAGE_DATA_SQL, storeFirstRow(), imageId);
+            if (path != null) {
+                jdbcTemplate.update(EXTERNALIZE_IMAGE_SQL, path, imageId);
+            }
+            return path;
+        });
+        if (storedPath != null) {
+            // Same bytes under a new URL; only the cached location is stale
+            imageMetadataCache.evict(imageId);
+            log.debug("Moved the bytes of image {} to {}", imageId, storedPath);
+        }
+        return storedPath;
+    }
+
+    /**
+     * Moves the user's profile picture to the upload store. Returns its
+     * stored path, or null if the user has no picture in the database.
+     */
+    public String externalizeProfilePicture(Long userId) {
+        if (usersDone) {
+            return null;
+        }
+        return rowTransaction.execute(status -> {
+            String path = jdbcTemplate.query(PROFILE_PICTURE_SQL, storeFirstRow(), userId);
+            if (path != null) {
+                jdbcTemplate.update(EXTERNALIZE_PROFILE_PICTURE_SQL, path, userId);
+            }
+            return path;
+        });
+    }
+
+    public boolean isDone() {
+        return imagesDone && usersDone;
+    }
+
+    // Helper methods
+
+    // Streams [contentType, bytes] of the first row into the store; null if there is no row
+    private ResultSetExtractor<String> storeFirstRow() {
+        return rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            String extension = extensionOf(rs.getString(1));
+            try (InputStream in = rs.getBinaryStream(2)) {
+                return in != null ? fileStorageUtil.storeContent(in, "legacy" + extension) : null;
+            } catch (IOException e) {
+                throw new RuntimeException("Could not move picture bytes to the upload store", e);
+            }
+        };
+    }
+
+    private static String extensionOf(String contentType) {
+        if (contentType == null) {
+            return "";
+        }
+        return switch (contentType.toLowerCase()) {
+            case "image/jpeg", "image/jpg" -> ".jpg";
+            case "image/png" -> ".png";
+            case "image/gif" -> ".gif";
+            case "image/webp" -> ".webp";
+            default -> "";
+        };
+    }
+}
@@ -0,0 +1,224 @@
+package com.service;
+
+import com.event.ProductCatalogChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payload.request.BulkStockUpdateRequest;
+import com.payload.response.BulkStockUpdateResponse;
+import com.payload.response.BulkStockUpdateResponse.LineResult;
+import com.payload.response.BulkStockUpdateResponse.LineStatus;
+import com.repository.ProductVariantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BulkStockService
+ * ================
+ *
+ * Applies stock changes for thousands of variants in one request (warehouse
+ * syncs, procurement). Every line becomes one conditional UPDATE sent in JDBC
+ * batches, in variant id order like checkout so the two never deadlock; lines
+ * that would take stock below zero or name unknown variants are reported per
+ * line instead of failing the whole request.
+ *
+ * With a request key the request is processed once: the key is inserted
+ * first (a concurrent duplicate waits on the unique index) and the response
+ * is stored with it, so a retry gets the original outcome back.
+ */
+@Service
+@Slf4j
+public class BulkStockService {
+
+    private static final int MAX_LINES = 10_000;
+    private static final int BATCH_SIZE = 500;
+
+    // SET: base = quantity, factor = 0; DELTA: base = delta, factor = 1
+    private static final String UPDATE_SQL = "UPDATE product_variant SET quantity = ? + ? * quantity "
+            + "WHERE id = ? AND ? + ? * quantity >= 0";
+
+    private static final String INSERT_KEY_SQL = "INSERT INTO inventory_update_request "
+            + "(request_key, line_count, created_at) VALUES (?, ?, ?)";
+    private static final String SAVE_RESPONSE_SQL = "UPDATE inventory_update_request SET response = ? "
+            + "WHERE request_key = ?";
+    private static final String LOAD_RESPONSE_SQL = "SELECT response FROM inventory_update_request "
+            + "WHERE request_key = ?";
+
+    private record PendingLine(int index, long variantId, int base, int factor) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional
+    public BulkStockUpdateResponse apply(BulkStockUpdateRequest request, String idempotencyKey) {
+        List<BulkStockUpdateRequest.Line> items = request.getItems() != null ? request.getItems() : List.of();
+        if (items.size() > MAX_LINES) {
+            throw new RuntimeException("A bulk stock update is limited to " + MAX_LINES + " lines");
+        }
+
+        String requestKey = idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey
+                : request.getRequestKey();
+        if (requestKey != null && !requestKey.isBlank()) {
+            if (requestKey.length() > 100) {
+                throw new RuntimeException("Request key must be at most 100 characters");
+            }
+            try {
+                jdbcTemplate.update(INSERT_KEY_SQL, requestKey, items.size(),
+                        new Timestamp(System.currentTimeMillis()));
+            } catch (DuplicateKeyException e) {
+                return replay(requestKey);
+            }
+        } else {
+            requestKey = null;
+        }
+
+        long start = System.currentTimeMillis();
+        LineResult[] results = new LineResult[items.size()];
+        List<PendingLine> pending = new ArrayList<>();
+        Set<Long> touched = new HashSet<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            BulkStockUpdateRequest.Line line = items.get(i);
+            if (line == null || line.getVariantId() == null || line.getQuantity() == null) {
+                results[i] = new LineResult(line != null ? line.getVariantId() : null, LineStatus.INVALID,
+                        "variantId and quantity are required");
+                continue;
+            }
+            BulkStockUpdateRequest.Mode mode = line.getMode() != null ? line.getMode()
+                    : request.getMode() != null ? request.getMode() : BulkStockUpdateRequest.Mode.DELTA;
+            if (mode == BulkStockUpdateRequest.Mode.SET && line.getQuantity() < 0) {
+                results[i] = new LineResult(line.getVariantId(), LineStatus.INVALID,
+                        "Stock quantity cannot be negative");
+                continue;
+            }
+
+            if (hotSkuInventory.isHot(line.getVariantId())) {
+                results[i] = applyHot(line.getVariantId(), line.getQuantity(), mode);
+                if (results[i].getStatus() == LineStatus.UPDATED) {
+                    touched.add(line.getVariantId());
+                }
+                continue;
+            }
+            pending.add(new PendingLine(i, line.getVariantId(), line.getQuantity(),
+                    mode == BulkStockUpdateRequest.Mode.SET ? 0 : 1));
+        }
+
+        // Stable sort keeps repeated variants in request order
+        pending.sort(Comparator.comparingLong(PendingLine::variantId));
+        List<PendingLine> unapplied = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += BATCH_SIZE) {
+            List<PendingLine> chunk = pending.subList(from, Math.min(from + BATCH_SIZE, pending.size()));
+            int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, chunk, chunk.size(), (ps, line) -> {
+                ps.setInt(1, line.base());
+                ps.setInt(2, line.factor());
+                ps.setLong(3, line.variantId());
+                ps.setInt(4, line.base());
+                ps.setInt(5, line.factor());
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                PendingLine line = chunk.get(i);
+                if (counts[0][i] > 0) {
+                    results[line.index()] = new LineResult(line.variantId(), LineStatus.UPDATED, null);
+                    touched.add(line.variantId());
+                } else {
+                    unapplied.add(line);
+                }
+            }
+        }
+
+        if (!unapplied.isEmpty()) {
+            Set<Long> existing = new HashSet<>(productVariantRepository
+                    .findExistingIds(unapplied.stream().map(PendingLine::variantId).distinct().toList()));
+            for (PendingLine line : unapplied) {
+                results[line.index()] = existing.contains(line.variantId())
+                        ? new LineResult(line.variantId(), LineStatus.INSUFFICIENT_STOCK,
+                                "Stock cannot go below zero")
+                        : new LineResult(line.variantId(), LineStatus.NOT_FOUND, "Variant not found");
+            }
+        }
+
+        if (!touched.isEmpty()) {
+            for (Long modelNo : productVariantRepository.findModelNosByIds(touched)) {
+                eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, modelNo,
+                        ProductCatalogChangedEvent.ChangeType.STOCK_UPDATED));
+            }
+        }
+
+        BulkStockUpdateResponse response = new BulkStockUpdateResponse();
+        response.setRequestKey(requestKey);
+        response.setResults(List.of(results));
+        response.setUpdated((int) response.getResults().stream()
+                .filter(r -> r.getStatus() == LineStatus.UPDATED).count());
+        response.setFailed(items.size() - response.getUpdated());
+
+        if (requestKey != null) {
+            try {
+                jdbcTemplate.update(SAVE_RESPONSE_SQL, objectMapper.writeValueAsString(response), requestKey);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to store bulk stock update result", e);
+            }
+        }
+
+        log.info("Bulk stock update: {} lines, {} updated, {} failed in {} ms", items.size(),
+                response.getUpdated(), response.getFailed(), System.currentTimeMillis() - start);
+        return response;
+    }
+
+    // Helper methods
+
+    /**
+     * Hot (flash-sale) variants keep their stock in memory, so they go through
+     * HotSkuInventory instead of the row update.
+     */
+    private LineResult applyHot(Long variantId, int quantity, BulkStockUpdateRequest.Mode mode) {
+        if (mode == BulkStockUpdateRequest.Mode.SET) {
+            inventoryService.updateStock(variantId, quantity);
+        } else if (quantity > 0) {
+            hotSkuInventory.release(Map.of(variantId, quantity));
+        } else if (quantity < 0 && hotSkuInventory.take(Map.of(variantId, -quantity)) != null) {
+            return new LineResult(variantId, LineStatus.INSUFFICIENT_STOCK, "Stock cannot go below zero");
+        }
+        return new LineResult(variantId, LineStatus.UPDATED, null);
+    }
+
+    private BulkStockUpdateResponse replay(String requestKey) {
+        String stored = jdbcTemplate.queryForObject(LOAD_RESPONSE_SQL, String.class, requestKey);
+        if (stored == null) {
+            throw new RuntimeException("Bulk stock update " + requestKey + " is still being processed");
+        }
+        try {
+            BulkStockUpdateResponse response = objectMapper.readValue(stored, BulkStockUpdateResponse.class);
+            response.setReplayed(true);
+            return response;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read stored bulk stock update result", e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.service;
+
+import com.dto.CartItemDTO;
+import com.event.ProductCatalogChangedEvent;
+import com.mapper.CartMapper;
+import com.repository.ProductVariantRepository;
+import com.util.InvalidationVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CartItemViewCache
+ * =================
+ *
+ * What a cart line shows for a variant (product name, image, current price,
+ * color, size), so rendering a cart from the {@link CartStore} needs no query
+ * once its variants have been seen. Bounded by entry count (least recently
+ * used goes first) and by a TTL, and dropped per product once a
+ * {@link ProductCatalogChangedEvent} other than a stock or rating change
+ * commits, so price edits show up on the next cart read.
+ */
+@Service
+public class CartItemViewCache {
+
+    private record CachedView(CartItemDTO view, long expiresAt) {
+    }
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Access-ordered so the eldest entry is the least recently read one
+    private final LinkedHashMap<Long, CachedView> entries;
+
+    // Keyed by product: a view loaded while its product was invalidated is not cached
+    private final InvalidationVersions<Long> versions = new InvalidationVersions<>();
+
+    public CartItemViewCache(PlatformTransactionManager transactionManager,
+            @Value("${app.cache.cart-item-view.max-entries:20000}") int maxEntries,
+            @Value("${app.cache.cart-item-view.ttl-seconds:300}") long ttlSeconds) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedView> eldest) {
+                return size() > CartItemViewCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Views by variant id; variants that no longer exist are missing from the
+     * result. Views are shared and must not be modified.
+     */
+    public Map<Long, CartItemDTO> getViews(Collection<Long> variantIds) {
+        Map<Long, CartItemDTO> views = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long loadStart;
+        synchronized (entries) {
+            for (Long variantId : variantIds) {
+                CachedView cached = entries.get(variantId);
+                if (cached != null && cached.expiresAt() > now) {
+                    views.put(variantId, cached.view());
+                } else {
+                    missing.add(variantId);
+                }
+            }
+            if (missing.isEmpty()) {
+                return views;
+            }
+            loadStart = versions.beginLoad();
+        }
+
+        try {
+            List<CartItemDTO> loaded = readOnlyTransaction.execute(status -> productVariantRepository
+                    .findWithProductByIds(missing).stream()
+                    .map(CartMapper::toItemView)
+                    .toList());
+
+            long expiresAt = System.currentTimeMillis() + ttlMillis;
+            synchronized (entries) {
+                for (CartItemDTO view : loaded) {
+                    views.put(view.getVariantId(), view);
+                    if (versions.isCurrent(view.getProduct().getModelNo(), loadStart)) {
+                        entries.put(view.getVariantId(), new CachedView(view, expiresAt));
+                    }
+                }
+            }
+            return views;
+        } finally {
+            synchronized (entries) {
+                versions.endLoad();
+            }
+        }
+    }
+
+    public void invalidateProduct(long modelNo) {
+        synchronized (entries) {
+            versions.invalidate(modelNo);
+            entries.values().removeIf(cached -> cached.view().getProduct().getModelNo() == modelNo);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.getModelNo() != null && !event.getChangeType().isDetailOnly()) {
+            invalidateProduct(event.getModelNo());
+        }
+    }
+}
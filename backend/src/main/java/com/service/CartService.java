@@ -1,18 +1,61 @@
 package com.service;
 
+import com.dto.CartItemDTO;
 import com.entity.*;
 import com.mapper.CartMapper;
 import com.payload.request.CartItemRequest;
 import com.payload.response.CartResponseDTO;
 import com.repository.CartRepository;
 import com.repository.ProductVariantRepository;
+import com.repository.UserRepository;
+import com.repository.VisitorRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * CartService
+ * ===========
+ *
+ * Live carts are kept in the {@link CartStore} as variant id to quantity; cart
+ * clicks only change the store and are rendered through
+ * {@link CartItemViewCache}, so they reach MySQL only when something is not
+ * cached yet. The Cart and CartItem tables are written at checkout
+ * ({@link #getCartByUser}) and by a periodic snapshot of the carts changed
+ * since the last one, plus once more on shutdown.
+ *
+ * A cart not in the store is loaded from its saved lines on first use. Line
+ * ids in responses are variant ids.
+ *
+ * Checkout holds the user's cart lock from writing the Cart rows until its
+ * transaction ends, and the snapshot only writes a cart while holding that
+ * lock and only if the version it read is still the stored one, so a
+ * snapshot can never write back lines an order has just consumed.
+ *
+ * Visitors who are not logged in get a guest cart in the
+ * {@link GuestCartStore}, merged into their own cart when they log in.
+ */
 @Service
+@Slf4j
 public class CartService {
 
     @Autowired
@@ -21,165 +64,386 @@ public class CartService {
     @Autowired
     private ProductVariantRepository productVariantRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VariantIndex variantIndex;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartItemViewCache cartItemViewCache;
+
+    @Autowired
+    private GuestCartStore guestCartStore;
+
+    @Autowired
+    private VisitorRepository visitorRepository;
+
     // private com.repository.CartItemRepository cartItemRepository;
 
-    @Transactional
-    public CartResponseDTO getCartResponseByUser(User user) {
-        Cart cart = getCartByUser(user);
-        return CartMapper.toDTO(cart);
+    @Value("${app.cart.idle-minutes:60}")
+    private long idleMinutes;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Function<Long, Map<Long, Integer>> loader = this::loadLines;
+
+    // Serializes writes of one user's Cart rows (checkout and snapshot); see acquireCartLock
+    private final Map<Long, CartLock> cartLocks = new ConcurrentHashMap<>();
+
+    private static final class CartLock {
+        final ReentrantLock lock = new ReentrantLock();
+        // Threads holding or waiting for it; changed only inside cartLocks.compute, dropped at zero
+        int users;
+    }
+
+    public CartService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public CartResponseDTO getCartResponseByUser(Long userId) {
+        return toResponse(userId, cartStore.get(userId, loader));
+    }
+
+    public CartResponseDTO addItemToCart(Long userId, CartItemRequest request) {
+        Long variantId = resolveVariantId(request);
+        return toResponse(userId, cartStore.update(userId, loader,
+                lines -> lines.merge(variantId, request.getQuantity(), Integer::sum)));
     }
 
+    public CartResponseDTO updateItemQuantityByItemId(Long userId, Long cartItemId, int quantity) {
+        return toResponse(userId, cartStore.update(userId, loader, lines -> {
+            if (lines.containsKey(cartItemId)) {
+                if (quantity > 0) {
+                    lines.put(cartItemId, quantity);
+                } else {
+                    lines.remove(cartItemId);
+                }
+            }
+        }));
+    }
+
+    public CartResponseDTO updateItemQuantity(Long userId, String productModelNo, int quantity) {
+        long modelNo = Long.parseLong(productModelNo);
+
+        // DEPRECATED LOGIC: Update ANY item with this product model no
+        // Ideally should pass cartItemId or variantId
+        return variantIdsOf(userId, modelNo).stream()
+                .findFirst()
+                .map(variantId -> updateItemQuantityByItemId(userId, variantId, quantity))
+                .orElseGet(() -> getCartResponseByUser(userId));
+    }
+
+    public CartResponseDTO removeItemFromCart(Long userId, String productModelNo) {
+        long modelNo = Long.parseLong(productModelNo);
+        // Remove ALL items matching this product
+        List<Long> variantIds = variantIdsOf(userId, modelNo);
+        return toResponse(userId, cartStore.update(userId, loader, lines -> lines.keySet().removeAll(variantIds)));
+    }
+
+    public CartResponseDTO removeItemFromCartById(Long userId, Long cartItemId) {
+        return toResponse(userId, cartStore.update(userId, loader, lines -> lines.remove(cartItemId)));
+    }
+
+    public CartResponseDTO clearCart(Long userId) {
+        return toResponse(userId, cartStore.update(userId, loader, Map::clear));
+    }
+
+    // Guest carts: in memory only, keyed by visitor token (see GuestCartStore)
+
+    public CartResponseDTO getGuestCart(String visitorToken) {
+        return toGuestResponse(guestCartStore.get(checkVisitorToken(visitorToken)));
+    }
+
+    public CartResponseDTO addGuestItem(String visitorToken, CartItemRequest request) {
+        checkVisitorToken(visitorToken);
+        // Only adding an item creates a cart: it must belong to a tracked visitor
+        if (guestCartStore.get(visitorToken).isEmpty()
+                && visitorRepository.findByVisitorToken(visitorToken).isEmpty()) {
+            throw new IllegalArgumentException("A valid visitor token is required");
+        }
+        Long variantId = resolveVariantId(request);
+        return toGuestResponse(guestCartStore.update(visitorToken,
+                lines -> lines.merge(variantId, request.getQuantity(), Integer::sum)));
+    }
+
+    public CartResponseDTO updateGuestItem(String visitorToken, Long cartItemId, int quantity) {
+        return toGuestResponse(guestCartStore.update(checkVisitorToken(visitorToken), lines -> {
+            if (lines.containsKey(cartItemId)) {
+                if (quantity > 0) {
+                    lines.put(cartItemId, quantity);
+                } else {
+                    lines.remove(cartItemId);
+                }
+            }
+        }));
+    }
+
+    public CartResponseDTO removeGuestItem(String visitorToken, Long cartItemId) {
+        return toGuestResponse(guestCartStore.update(checkVisitorToken(visitorToken),
+                lines -> lines.remove(cartItemId)));
+    }
+
+    public CartResponseDTO clearGuestCart(String visitorToken) {
+        guestCartStore.take(checkVisitorToken(visitorToken));
+        return toGuestResponse(Map.of());
+    }
+
+    /**
+     * Moves the visitor's guest cart into the user's cart, adding quantities
+     * of variants that are in both. Returns the number of lines merged.
+     */
+    public int mergeGuestCart(String visitorToken, Long userId) {
+        if (visitorToken == null || visitorToken.isBlank()) {
+            return 0;
+        }
+        Map<Long, Integer> guestLines = guestCartStore.take(visitorToken);
+        if (guestLines.isEmpty()) {
+            return 0;
+        }
+        cartStore.update(userId, loader, lines -> guestLines.forEach((variantId, quantity) -> lines.merge(variantId,
+                quantity, Integer::sum)));
+        log.info("Merged {} guest cart lines into the cart of user {}", guestLines.size(), userId);
+        return guestLines.size();
+    }
+
+    /**
+     * The user's cart for checkout: the stored lines are written to the Cart
+     * tables first, with item prices brought up to the current variant
+     * prices.
+     */
     @Transactional
     public Cart getCartByUser(User user) {
-        // Robust cleanup: Iterate and validate items
+        CartLock held = cartLocks.get(user.getId());
+        if (held == null || !held.lock.isHeldByCurrentThread()) {
+            CartLock cartLock = acquireCartLock(user.getId(), true);
+            // Held until the checkout transaction ends, so no snapshot writes this cart meanwhile
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    releaseCartLock(user.getId(), cartLock);
+                }
+            });
+        }
+        CartStore.StoredCart stored = cartStore.get(user.getId(), loader);
+        Cart cart = writeCart(user.getId(), stored.lines());
+        afterCommit(() -> cartStore.markPersisted(user.getId(), stored.version()));
+        return cart;
+    }
 
-        Cart cart = cartRepository.findByUser(user).orElseGet(() -> {
-            Cart newCart = new Cart();
-            newCart.setUser(user);
-            newCart.setTotalAmount(0.0);
-            return cartRepository.save(newCart);
+    /**
+     * Empties the cart an order was placed from. Once the order commits, the
+     * ordered quantities are taken out of the stored cart; lines added while
+     * checkout ran stay.
+     */
+    @Transactional
+    public void clearAfterCheckout(User user, Cart cart) {
+        Map<Long, Integer> ordered = new HashMap<>();
+        cart.getItems().forEach(item -> ordered.merge(item.getVariant().getId(), item.getQuantity(), Integer::sum));
+        cart.getItems().clear();
+        cart.setTotalAmount(0.0);
+        cartRepository.save(cart);
+        afterCommit(() -> {
+            CartStore.StoredCart left = cartStore.update(user.getId(), loader, lines -> ordered.forEach(
+                    (variantId, quantity) -> lines.computeIfPresent(variantId, (id, q) -> q > quantity ? q - quantity
+                            : null)));
+            if (left.lines().isEmpty()) {
+                cartStore.remove(user.getId());
+            }
         });
+    }
 
-        // Robust cleanup: Iterate and validate items
-        if (cart.getItems() != null) {
-            java.util.Iterator<CartItem> iterator = cart.getItems().iterator();
-            while (iterator.hasNext()) {
-                CartItem item = iterator.next();
-                try {
-                    // Force load variant
-                    if (item.getVariant() != null) {
-                        ProductVariant v = item.getVariant();
-                        item.setPrice(v.getPrice());
-                    } else {
-                        iterator.remove(); // Remove null variant items
-                    }
-                } catch (Exception e) {
-                    iterator.remove();
+    /**
+     * Writes carts changed since the last snapshot to the database, then drops
+     * carts that have been idle for a while from the store.
+     */
+    @Scheduled(fixedDelayString = "${app.cart.snapshot-ms:30000}", initialDelayString = "${app.cart.snapshot-ms:30000}")
+    public void persistDirtyCarts() {
+        Map<Long, CartStore.StoredCart> dirty = cartStore.findDirty();
+        int failed = 0;
+        for (Map.Entry<Long, CartStore.StoredCart> entry : dirty.entrySet()) {
+            CartLock cartLock = acquireCartLock(entry.getKey(), false);
+            if (cartLock == null) {
+                // Checking out; still dirty, so the next snapshot gets it if anything is left
+                continue;
+            }
+            try {
+                CartStore.StoredCart current = cartStore.find(entry.getKey());
+                if (current == null || current.version() != entry.getValue().version()) {
+                    // Changed or checked out since it was read: the lines are stale
+                    continue;
                 }
+                transactionTemplate.executeWithoutResult(status -> writeCart(entry.getKey(),
+                        entry.getValue().lines()));
+                cartStore.markPersisted(entry.getKey(), entry.getValue().version());
+            } catch (RuntimeException e) {
+                failed++;
+                log.warn("Failed to save cart of user {}: {}", entry.getKey(), e.getMessage());
+            } finally {
+                releaseCartLock(entry.getKey(), cartLock);
             }
-            // Save changes if items were removed or prices updated
-            updateTotalAmount(cart);
-            cart = cartRepository.save(cart);
         }
-        return cart;
+        int evicted = cartStore.evictIdle(idleMinutes * 60_000);
+        if (!dirty.isEmpty() || evicted > 0) {
+            log.debug("Cart snapshot: {} saved, {} failed, {} idle carts evicted, {} in store",
+                    dirty.size() - failed, failed, evicted, cartStore.size());
+        }
     }
 
-    @Transactional
-    public CartResponseDTO addItemToCart(User user, CartItemRequest request) {
-        Cart cart = getCartByUser(user);
+    @PreDestroy
+    public void persistOnShutdown() {
+        persistDirtyCarts();
+    }
+
+    // Helper methods
 
-        // Find variant by Product ID + Color + Size
+    private CartResponseDTO toResponse(Long userId, CartStore.StoredCart cart) {
+        Map<Long, CartItemDTO> views = cartItemViewCache.getViews(cart.lines().keySet());
+        if (views.size() < cart.lines().size()) {
+            // Variants deleted since they were added
+            Set<Long> gone = new HashSet<>(cart.lines().keySet());
+            gone.removeAll(views.keySet());
+            cartStore.update(userId, loader, lines -> lines.keySet().removeAll(gone));
+        }
+        return CartMapper.toDTO(cart.lines(), views);
+    }
+
+    private CartResponseDTO toGuestResponse(Map<Long, Integer> lines) {
+        return CartMapper.toDTO(lines, cartItemViewCache.getViews(lines.keySet()));
+    }
+
+    private Long resolveVariantId(CartItemRequest request) {
         Long modelNo = Long.parseLong(request.getProductModelNo());
         String color = request.getColor();
         String size = request.getSize();
 
-        // If color/size defaults are needed, handle here. For now assume strict match.
-        // If color is missing, try to find *any* variant? No, strict.
-
-        java.util.List<ProductVariant> variants = productVariantRepository.findByProductModelNo(modelNo);
-        Optional<ProductVariant> variantOpt = variants.stream()
-                .filter(v -> java.util.Objects.equals(v.getColor(), color)
-                        && java.util.Objects.equals(v.getSize(), size))
-                .findFirst();
-
-        if (variantOpt.isEmpty()) {
-            // Fallback: if only one variant exists and requested attributes were null/blank
-            if (variants.size() == 1 && (color == null || color.isBlank()) && (size == null || size.isBlank())) {
-                variantOpt = Optional.of(variants.get(0));
-            } else {
-                throw new RuntimeException(
-                        "Product Variant not found for model: " + modelNo + " color: " + color + " size: " + size);
-            }
+        Long variantId = variantIndex.findVariantId(modelNo, color, size);
+        if (variantId != null && cartItemViewCache.getViews(List.of(variantId)).isEmpty()) {
+            // Deleted since the index was built
+            variantIndex.invalidate(modelNo);
+            variantId = null;
         }
+        if (variantId == null) {
+            throw new RuntimeException(
+                    "Product Variant not found for model: " + modelNo + " color: " + color + " size: " + size);
+        }
+        return variantId;
+    }
 
-        ProductVariant variant = variantOpt.get();
-
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getVariant().getId().equals(variant.getId()))
-                .findFirst();
-
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + request.getQuantity());
-            item.setPrice(variant.getPrice());
-        } else {
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setVariant(variant);
-            newItem.setQuantity(request.getQuantity());
-            newItem.setPrice(variant.getPrice());
-            cart.getItems().add(newItem);
+    private static String checkVisitorToken(String visitorToken) {
+        if (visitorToken == null || visitorToken.isBlank() || visitorToken.length() > 100) {
+            throw new IllegalArgumentException("A valid visitor token is required");
         }
+        return visitorToken;
+    }
 
-        updateTotalAmount(cart);
-        return CartMapper.toDTO(cartRepository.save(cart));
+    private List<Long> variantIdsOf(Long userId, long modelNo) {
+        Map<Long, Integer> lines = cartStore.get(userId, loader).lines();
+        Map<Long, CartItemDTO> views = cartItemViewCache.getViews(lines.keySet());
+        return lines.keySet().stream()
+                .filter(variantId -> views.containsKey(variantId)
+                        && views.get(variantId).getProduct().getModelNo() == modelNo)
+                .toList();
     }
 
-    @Transactional
-    public CartResponseDTO updateItemQuantityByItemId(User user, Long cartItemId, int quantity) {
-        Cart cart = getCartByUser(user);
+    private Map<Long, Integer> loadLines(Long userId) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        for (Object[] row : cartRepository.findLinesByUserId(userId)) {
+            lines.merge((Long) row[0], (Integer) row[1], Integer::sum);
+        }
+        return lines;
+    }
 
-        cart.getItems().stream()
-                .filter(item -> item.getId().equals(cartItemId))
-                .findFirst()
-                .ifPresent(item -> {
-                    if (quantity > 0) {
-                        item.setQuantity(quantity);
-                    } else {
-                        cart.getItems().remove(item);
-                    }
-                });
+    /**
+     * Makes the user's Cart rows match the lines, touching only rows that
+     * differ. Must run in a transaction.
+     */
+    private Cart writeCart(Long userId, Map<Long, Integer> lines) {
+        Cart cart = cartRepository.findWithItemsByUserId(userId).orElseGet(() -> {
+            Cart newCart = new Cart();
+            newCart.setUser(userRepository.getReferenceById(userId));
+            newCart.setTotalAmount(0.0);
+            return newCart;
+        });
 
-        updateTotalAmount(cart);
-        return CartMapper.toDTO(cartRepository.save(cart));
-    }
+        Set<Long> seen = new HashSet<>();
+        cart.getItems().removeIf(item -> !lines.containsKey(item.getVariant().getId())
+                || !seen.add(item.getVariant().getId()));
+        Map<Long, CartItem> itemsByVariant = cart.getItems().stream()
+                .collect(Collectors.toMap(item -> item.getVariant().getId(), item -> item));
 
-    @Transactional
-    public CartResponseDTO updateItemQuantity(User user, String productModelNo, int quantity) {
-        Cart cart = getCartByUser(user);
-        Long modelNo = Long.parseLong(productModelNo);
+        List<Long> newVariantIds = lines.keySet().stream()
+                .filter(variantId -> !itemsByVariant.containsKey(variantId))
+                .toList();
+        Map<Long, ProductVariant> newVariants = new HashMap<>();
+        if (!newVariantIds.isEmpty()) {
+            productVariantRepository.findAllById(newVariantIds).forEach(v -> newVariants.put(v.getId(), v));
+        }
 
-        // DEPRECATED LOGIC: Update ANY item with this product model no
-        // Ideally should pass cartItemId or variantId
-        cart.getItems().stream()
-                .filter(item -> item.getVariant().getProduct().getModelNo().equals(modelNo))
-                .findFirst()
-                .ifPresent(item -> {
-                    if (quantity > 0) {
-                        item.setQuantity(quantity);
-                    } else {
-                        cart.getItems().remove(item);
-                    }
-                });
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            CartItem item = itemsByVariant.get(line.getKey());
+            if (item == null) {
+                ProductVariant variant = newVariants.get(line.getKey());
+                if (variant == null) {
+                    continue;
+                }
+                item = new CartItem();
+                item.setCart(cart);
+                item.setVariant(variant);
+                cart.getItems().add(item);
+            }
+            if (item.getQuantity() != line.getValue()) {
+                item.setQuantity(line.getValue());
+            }
+            double price = item.getVariant().getPrice();
+            if (item.getPrice() != price) {
+                item.setPrice(price);
+            }
+        }
 
         updateTotalAmount(cart);
-        return CartMapper.toDTO(cartRepository.save(cart));
+        return cartRepository.save(cart);
     }
 
-    @Transactional
-    public CartResponseDTO removeItemFromCart(User user, String productModelNo) {
-        Cart cart = getCartByUser(user);
-        Long modelNo = Long.parseLong(productModelNo);
-        // Remove ALL items matching this product
-        cart.getItems().removeIf(item -> item.getVariant().getProduct().getModelNo().equals(modelNo));
-        updateTotalAmount(cart);
-        return CartMapper.toDTO(cartRepository.save(cart));
+    // Null if wait is false and another thread holds the lock
+    private CartLock acquireCartLock(Long userId, boolean wait) {
+        CartLock cartLock = cartLocks.compute(userId, (id, current) -> {
+            CartLock result = current != null ? current : new CartLock();
+            result.users++;
+            return result;
+        });
+        if (wait) {
+            cartLock.lock.lock();
+        } else if (!cartLock.lock.tryLock()) {
+            forgetCartLock(userId);
+            return null;
+        }
+        return cartLock;
     }
 
-    @Transactional
-    public CartResponseDTO removeItemFromCartById(User user, Long cartItemId) {
-        Cart cart = getCartByUser(user);
-        cart.getItems().removeIf(item -> item.getId().equals(cartItemId));
-        updateTotalAmount(cart);
-        return CartMapper.toDTO(cartRepository.save(cart));
+    private void releaseCartLock(Long userId, CartLock cartLock) {
+        cartLock.lock.unlock();
+        forgetCartLock(userId);
     }
 
-    @Transactional
-    public CartResponseDTO clearCart(User user) {
-        Cart cart = getCartByUser(user);
-        cart.getItems().clear();
-        updateTotalAmount(cart);
-        return CartMapper.toDTO(cartRepository.save(cart));
+    private void forgetCartLock(Long userId) {
+        cartLocks.computeIfPresent(userId, (id, current) -> --current.users == 0 ? null : current);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private void updateTotalAmount(Cart cart) {
@@ -0,0 +1,64 @@
+package com.service;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Where live carts are kept between checkouts. Carts are small (variant id to
+ * quantity) and written on every cart click, so they are held in a fast
+ * key-value store and only written to MySQL by {@link CartService} at checkout
+ * and in periodic snapshots.
+ *
+ * The default {@link InProcessCartStore} keeps carts in this JVM; with more
+ * than one instance behind a non-sticky balancer, register a bean backed by a
+ * shared store (Redis or compatible) and set app.cart.store accordingly.
+ */
+public interface CartStore {
+
+    /**
+     * A cart as stored: variant id to quantity in the order lines were added
+     * (unmodifiable), and a version bumped by every change.
+     */
+    record StoredCart(Map<Long, Integer> lines, long version) {
+    }
+
+    /**
+     * Returns the user's cart, calling the loader (user id to lines) if the
+     * store does not hold it yet.
+     */
+    StoredCart get(Long userId, Function<Long, Map<Long, Integer>> loader);
+
+    /**
+     * Applies the change atomically to a mutable copy of the lines and returns
+     * the result. A change that leaves the lines as they were is not a new
+     * version.
+     */
+    StoredCart update(Long userId, Function<Long, Map<Long, Integer>> loader, Consumer<Map<Long, Integer>> change);
+
+    void remove(Long userId);
+
+    /**
+     * The user's cart if the store holds it, without loading it.
+     */
+    StoredCart find(Long userId);
+
+    /**
+     * Carts changed since they were last marked persisted, by user id.
+     */
+    Map<Long, StoredCart> findDirty();
+
+    /**
+     * Records that the given version has been written to the database; later
+     * versions stay dirty.
+     */
+    void markPersisted(Long userId, long version);
+
+    /**
+     * Drops persisted carts not used for the given time; they are reloaded
+     * from the database on the next access. Returns how many were dropped.
+     */
+    int evictIdle(long idleMillis);
+
+    int size();
+}
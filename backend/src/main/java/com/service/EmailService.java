@@ -158,6 +158,14 @@ public class EmailService {
 
     @Async
     public void sendOrderConfirmation(String to, String orderId, byte[] invoicePdf) {
+        deliverOrderConfirmation(to, orderId, invoicePdf);
+    }
+
+    /**
+     * Sends the order confirmation on the calling thread and throws if the mail
+     * server rejects it, so callers can retry (see OrderPlacementPipeline).
+     */
+    public void deliverOrderConfirmation(String to, String orderId, byte[] invoicePdf) {
         String subject = "Order Confirmed! #" + orderId;
         String body = getHeader() +
                 "<h2 style='color: #333; text-align: center;'>Order Confirmed</h2>" +
@@ -0,0 +1,131 @@
+package com.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * GuestCartStore
+ * ==============
+ *
+ * Carts of shoppers who are not logged in, keyed by their visitor token and
+ * held only in memory: variant id to quantity, nothing is written to the
+ * database until the visitor logs in and the cart is merged into theirs. A
+ * cart expires after app.cart.guest.ttl-hours without use; the store holds at
+ * most app.cart.guest.max-carts carts and a cart at most MAX_LINES lines, so
+ * anonymous traffic cannot grow it without bound. When it is full, new carts
+ * evict the least recently used ones instead of being refused, so a flood of
+ * made-up tokens cannot lock real visitors out.
+ */
+@Service
+@Slf4j
+public class GuestCartStore {
+
+    public static final int MAX_LINES = 50;
+
+    private static final class GuestCart {
+        final Map<Long, Integer> lines;
+        volatile long lastAccess;
+
+        GuestCart(Map<Long, Integer> lines, long lastAccess) {
+            this.lines = lines;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Map<String, GuestCart> carts = new ConcurrentHashMap<>();
+
+    @Value("${app.cart.guest.ttl-hours:72}")
+    private long ttlHours;
+
+    @Value("${app.cart.guest.max-carts:100000}")
+    private int maxCarts;
+
+    /**
+     * Lines of the visitor's cart (unmodifiable), empty if there is none.
+     */
+    public Map<Long, Integer> get(String visitorToken) {
+        GuestCart cart = carts.get(visitorToken);
+        if (cart == null || isExpired(cart, System.currentTimeMillis())) {
+            return Map.of();
+        }
+        cart.lastAccess = System.currentTimeMillis();
+        return cart.lines;
+    }
+
+    /**
+     * Applies the change atomically to a mutable copy of the lines and returns
+     * the result. An emptied cart is dropped.
+     */
+    public Map<Long, Integer> update(String visitorToken, Consumer<Map<Long, Integer>> change) {
+        if (!carts.containsKey(visitorToken) && carts.size() >= maxCarts) {
+            purgeExpired();
+            if (carts.size() >= maxCarts) {
+                evictLeastRecentlyUsed();
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        GuestCart updated = carts.compute(visitorToken, (token, current) -> {
+            Map<Long, Integer> lines = current == null || isExpired(current, now) ? new LinkedHashMap<>()
+                    : new LinkedHashMap<>(current.lines);
+            change.accept(lines);
+            if (lines.size() > MAX_LINES) {
+                throw new RuntimeException("A cart can hold at most " + MAX_LINES + " different items");
+            }
+            return lines.isEmpty() ? null : new GuestCart(Collections.unmodifiableMap(lines), now);
+        });
+        return updated != null ? updated.lines : Map.of();
+    }
+
+    /**
+     * Removes and returns the visitor's cart, e.g. to merge it on login.
+     */
+    public Map<Long, Integer> take(String visitorToken) {
+        GuestCart cart = carts.remove(visitorToken);
+        return cart == null || isExpired(cart, System.currentTimeMillis()) ? Map.of() : cart.lines;
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.guest.purge-ms:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = carts.size();
+        carts.values().removeIf(cart -> isExpired(cart, now));
+        int purged = before - carts.size();
+        if (purged > 0) {
+            log.debug("Purged {} expired guest carts, {} left", purged, carts.size());
+        }
+    }
+
+    // Helper methods
+
+    // Makes room for new carts by dropping the idlest ones, a batch at a time so that a full store is
+    // scanned once per batch of new carts rather than once per cart
+    private void evictLeastRecentlyUsed() {
+        int batch = Math.max(1, maxCarts / 100);
+        List<Map.Entry<String, GuestCart>> idlest = carts.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                .limit(batch)
+                .toList();
+        idlest.forEach(entry -> carts.remove(entry.getKey(), entry.getValue()));
+        log.warn("Guest cart store is full ({} carts), evicted the {} least recently used", maxCarts,
+                idlest.size());
+    }
+
+    private boolean isExpired(GuestCart cart, long now) {
+        return cart.lastAccess < now - ttlHours * 3_600_000;
+    }
+}
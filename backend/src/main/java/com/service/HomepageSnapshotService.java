@@ -0,0 +1,144 @@
+package com.service;
+
+import com.entity.Product;
+import com.event.ProductCatalogChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapper.ProductMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * HomepageSnapshotService
+ * =======================
+ *
+ * Keeps the homepage payloads (featured, trending, active categories) as
+ * already-serialized JSON with a matching ETag, so serving them needs neither
+ * a database round-trip nor Jackson.
+ *
+ * Snapshots are rebuilt at startup, a few seconds after catalog changes
+ * (changes are coalesced) and on a slow schedule as a safety net. Stock
+ * changes only count for products in the trending section, the one payload
+ * that carries stock; get() returns null while no build has succeeded yet.
+ */
+@Service
+@Slf4j
+public class HomepageSnapshotService {
+
+    public enum Section {
+        FEATURED,
+        TRENDING,
+        ACTIVE_CATEGORIES
+    }
+
+    public record Snapshot(byte[] body, String etag) {
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private SmartPopupService smartPopupService;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile Map<Section, Snapshot> snapshots = new EnumMap<>(Section.class);
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    // Products in the TRENDING snapshot, whose payload includes stock
+    private volatile Set<Long> trendingModelNos = Set.of();
+
+    public HomepageSnapshotService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Returns the current snapshot of a section, building all snapshots first
+     * if a request arrives before the startup build has run.
+     */
+    public Snapshot get(Section section) {
+        Snapshot snapshot = snapshots.get(section);
+        if (snapshot == null) {
+            refresh();
+            snapshot = snapshots.get(section);
+        }
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.homepage.snapshot.refresh-ms:600000}",
+            initialDelayString = "${app.homepage.snapshot.refresh-ms:600000}")
+    public synchronized void refresh() {
+        dirty.set(false);
+        long start = System.currentTimeMillis();
+        try {
+            Map<Section, Snapshot> fresh = readOnlyTransaction.execute(status -> {
+                Map<Section, Snapshot> built = new EnumMap<>(Section.class);
+                built.put(Section.FEATURED, serialize(productService.getFeaturedProducts()));
+                List<Product> trending = smartPopupService.getTrendingProducts();
+                trendingModelNos = trending.stream().map(Product::getModelNo).collect(Collectors.toSet());
+                built.put(Section.TRENDING, serialize(trending.stream()
+                        .map(productMapper::toResponse)
+                        .toList()));
+                built.put(Section.ACTIVE_CATEGORIES, serialize(productService.getActiveCategories().stream()
+                        .map(Enum::name)
+                        .collect(Collectors.toList())));
+                return built;
+            });
+            snapshots = fresh;
+            log.debug("Homepage snapshots rebuilt in {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Keep serving the previous snapshots; the next change or tick retries
+            dirty.set(true);
+            log.error("Failed to rebuild homepage snapshots: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.getChangeType() == ProductCatalogChangedEvent.ChangeType.STOCK_UPDATED && event.getModelNo() != null
+                && !trendingModelNos.contains(event.getModelNo())) {
+            return;
+        }
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.homepage.snapshot.debounce-ms:5000}")
+    public void refreshIfDirty() {
+        if (dirty.get()) {
+            refresh();
+        }
+    }
+
+    private Snapshot serialize(Object payload) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(payload);
+            return new Snapshot(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize homepage snapshot", e);
+        }
+    }
+}
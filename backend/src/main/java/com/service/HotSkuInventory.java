@@ -0,0 +1,357 @@
+package com.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HotSkuInventory
+ * ===============
+ *
+ * Optional flash-sale mode for a handful of variants. Instead of every order
+ * decrementing (and row-locking) product_variant, stock of a hot variant is
+ * admitted from in-memory counters split into stripes, so concurrent
+ * checkouts rarely touch the same atomic, and the order transaction only
+ * inserts a row into inventory_journal. A background flush applies the
+ * journal to product_variant.quantity in aggregated batches.
+ *
+ * Consistency: the journal commits or rolls back with the order, so
+ * product_variant.quantity + unflushed journal is always the true stock and a
+ * crash loses nothing (the journal is flushed again at startup). The counters
+ * are only the admission gate: a rolled back order hands its units back, a
+ * release only becomes sellable once it commits.
+ *
+ * The flush runs on a thread of its own rather than Spring's shared
+ * scheduler, so its cadence does not depend on (or delay) the other jobs,
+ * such as the stock reservation expiry tick.
+ *
+ * Counters live in this JVM, so hot mode assumes a single backend instance.
+ * Enable it before the sale starts; orders that already passed the cold path
+ * while a variant is being switched are not seen by the new counter.
+ */
+@Service
+@Slf4j
+public class HotSkuInventory {
+
+    private static final String INSERT_JOURNAL_SQL = "INSERT INTO inventory_journal (variant_id, delta, created_at) "
+            + "VALUES (?, ?, ?)";
+    private static final String CLAIM_JOURNAL_SQL = "DELETE FROM inventory_journal WHERE id = ?";
+    private static final String APPLY_DELTA_SQL = "UPDATE product_variant SET quantity = quantity + ? WHERE id = ?";
+
+    private static final int FLUSH_BATCH = 5000;
+
+    private record JournalRow(long id, long variantId, int delta) {
+    }
+
+    /**
+     * Stock of one variant spread over a few independently updated stripes.
+     */
+    private static final class StripedCounter {
+        private final AtomicInteger[] stripes;
+
+        StripedCounter(int stripeCount, int total) {
+            stripes = new AtomicInteger[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new AtomicInteger(total / stripeCount + (i < total % stripeCount ? 1 : 0));
+            }
+        }
+
+        boolean tryTake(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripes.length);
+            // Usually one stripe has enough on its own
+            for (int i = 0; i < stripes.length; i++) {
+                AtomicInteger stripe = stripes[(start + i) % stripes.length];
+                int current;
+                while ((current = stripe.get()) >= quantity) {
+                    if (stripe.compareAndSet(current, current - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            // Near sell-out the remainder is scattered: collect it, or give it all back
+            int taken = 0;
+            for (int i = 0; i < stripes.length && taken < quantity; i++) {
+                AtomicInteger stripe = stripes[(start + i) % stripes.length];
+                int current;
+                while ((current = stripe.get()) > 0) {
+                    int part = Math.min(current, quantity - taken);
+                    if (stripe.compareAndSet(current, current - part)) {
+                        taken += part;
+                        break;
+                    }
+                }
+            }
+            if (taken < quantity) {
+                give(taken);
+                return false;
+            }
+            return true;
+        }
+
+        void give(int quantity) {
+            if (quantity > 0) {
+                stripes[ThreadLocalRandom.current().nextInt(stripes.length)].addAndGet(quantity);
+            }
+        }
+
+        int available() {
+            int total = 0;
+            for (AtomicInteger stripe : stripes) {
+                total += stripe.get();
+            }
+            return total;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.inventory.hot-sku.stripes:8}")
+    private int stripeCount;
+
+    @Value("${app.inventory.hot-sku.variants:}")
+    private List<Long> configuredVariants;
+
+    private final Map<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+
+    // Set once journal rows have committed; true at startup to pick up leftovers
+    private final AtomicBoolean journalPending = new AtomicBoolean(true);
+
+    private final TransactionTemplate ownTransaction;
+
+    private final ScheduledThreadPoolExecutor flushExecutor;
+
+    private final long flushMs;
+
+    public HotSkuInventory(PlatformTransactionManager transactionManager,
+            @Value("${app.inventory.hot-sku.flush-ms:500}") long flushMs) {
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushMs = flushMs;
+        this.flushExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "hot-sku-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isHot(Long variantId) {
+        return counters.containsKey(variantId);
+    }
+
+    public Set<Long> getHotVariantIds() {
+        return Set.copyOf(counters.keySet());
+    }
+
+    /**
+     * Units a hot variant can still sell, or null when the variant isn't hot.
+     */
+    public Integer getAvailable(Long variantId) {
+        StripedCounter counter = counters.get(variantId);
+        return counter != null ? counter.available() : null;
+    }
+
+    /**
+     * Splits order lines (variantId -> quantity) into the ones served here.
+     */
+    public Map<Long, Integer> hotLines(Map<Long, Integer> quantities) {
+        Map<Long, Integer> hot = new HashMap<>();
+        quantities.forEach((variantId, quantity) -> {
+            if (counters.containsKey(variantId)) {
+                hot.put(variantId, quantity);
+            }
+        });
+        return hot;
+    }
+
+    /**
+     * Admits all lines or none, without touching product_variant. Must run in
+     * a transaction: the journal rows join it and the units are handed back
+     * if it rolls back. Returns the variant that was short, or null.
+     */
+    public Long take(Map<Long, Integer> lines) {
+        Map<Long, Integer> taken = new HashMap<>();
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            StripedCounter counter = counters.get(line.getKey());
+            if (counter == null || !counter.tryTake(line.getValue())) {
+                giveBack(taken);
+                return line.getKey();
+            }
+            taken.put(line.getKey(), line.getValue());
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    journalPending.set(true);
+                } else {
+                    giveBack(taken);
+                }
+            }
+        });
+        journal(taken, -1);
+        return null;
+    }
+
+    /**
+     * Returns units of hot variants (cancellations, expired holds). They
+     * become sellable once the caller's transaction commits.
+     */
+    public void release(Map<Long, Integer> lines) {
+        journal(lines, 1);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                journalPending.set(true);
+                giveBack(lines);
+            }
+        });
+    }
+
+    /**
+     * Switches a variant to hot mode, seeding the counter from the flushed
+     * stock while holding the variant row.
+     */
+    public int enable(Long variantId) {
+        flush();
+        Integer quantity = ownTransaction.execute(status -> {
+            Integer current = jdbcTemplate.queryForObject(
+                    "SELECT quantity FROM product_variant WHERE id = ? FOR UPDATE", Integer.class, variantId);
+            if (current == null) {
+                throw new RuntimeException("Variant not found");
+            }
+            counters.put(variantId, new StripedCounter(stripeCount, Math.max(current, 0)));
+            return current;
+        });
+        log.info("Hot SKU mode enabled for variant {} with {} units", variantId, quantity);
+        return quantity;
+    }
+
+    /**
+     * Sends the variant back to plain row updates. Journal rows of orders still
+     * in flight are applied by a later flush.
+     */
+    public void disable(Long variantId) {
+        if (counters.remove(variantId) != null) {
+            flush();
+            log.info("Hot SKU mode disabled for variant {}", variantId);
+        }
+    }
+
+    /**
+     * Applies committed journal rows to product_variant. Each row is claimed by
+     * deleting it, so a row is applied exactly once even if flushes overlap.
+     */
+    public void flush() {
+        if (!journalPending.getAndSet(false)) {
+            return;
+        }
+        try {
+            int applied;
+            do {
+                applied = ownTransaction.execute(status -> flushBatch());
+            } while (applied == FLUSH_BATCH);
+        } catch (Exception e) {
+            journalPending.set(true);
+            log.error("Failed to flush inventory journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies whatever a crash left in the journal, then enables the
+     * configured variants and starts the periodic flush.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        try {
+            flush();
+            for (Long variantId : configuredVariants) {
+                enable(variantId);
+            }
+        } catch (Exception e) {
+            log.error("Hot SKU startup failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Journal rows left unflushed are applied at the next startup
+        flushExecutor.shutdownNow();
+    }
+
+    // Helper methods
+
+    private int flushBatch() {
+        List<JournalRow> rows = jdbcTemplate.query(
+                "SELECT id, variant_id, delta FROM inventory_journal ORDER BY id LIMIT " + FLUSH_BATCH,
+                (rs, i) -> new JournalRow(rs.getLong(1), rs.getLong(2), rs.getInt(3)));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        int[][] claimed = jdbcTemplate.batchUpdate(CLAIM_JOURNAL_SQL, rows, rows.size(),
+                (ps, row) -> ps.setLong(1, row.id()));
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (claimed[0][i] > 0) {
+                deltas.merge(rows.get(i).variantId(), rows.get(i).delta(), Integer::sum);
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> updates = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, updates, updates.size(), (ps, update) -> {
+            ps.setInt(1, update.getValue());
+            ps.setLong(2, update.getKey());
+        });
+        log.debug("Flushed {} journal rows into {} variants", rows.size(), updates.size());
+        return rows.size();
+    }
+
+    private void journal(Map<Long, Integer> lines, int sign) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(lines.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_JOURNAL_SQL, entries, entries.size(), (ps, line) -> {
+            ps.setLong(1, line.getKey());
+            ps.setInt(2, sign * line.getValue());
+            ps.setTimestamp(3, now);
+        });
+    }
+
+    private void giveBack(Map<Long, Integer> lines) {
+        lines.forEach((variantId, quantity) -> {
+            StripedCounter counter = counters.get(variantId);
+            if (counter != null) {
+                counter.give(quantity);
+            }
+        });
+    }
+}
@@ -0,0 +1,302 @@
+package com.service;
+
+import com.event.ProductCatalogChangedEvent;
+import com.repository.ProductImageRepository;
+import com.util.FileResponseWriter;
+import com.util.FileStorageUtil;
+import com.util.InvalidationVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ImageMetadataCache
+ * ==================
+ *
+ * What ImageController needs to serve an image without asking MySQL: where
+ * the bytes are (an uploaded file, or the legacy BLOB column), the content
+ * type and, once the file or one of its renditions has been served, its
+ * size and ETag. Also the image ids behind the legacy /product/{modelNo}/{n}
+ * URLs.
+ *
+ * Bounded by entry count (least recently used goes first), warmed at startup
+ * with the newest images, and dropped per product once a
+ * {@link ProductCatalogChangedEvent} other than a stock or rating change
+ * commits; that is what image uploads (AdminProductController.handleImages)
+ * and product saves (ProductService.saveProductInternal) publish. Image rows
+ * are never re-pointed to other content, so an entry only goes stale when its
+ * image is deleted, or when BlobMigrationService moves a legacy row's bytes
+ * to a file, which evicts it.
+ */
+@Service
+@Slf4j
+public class ImageMetadataCache {
+
+    /**
+     * Metadata of one image. {@code file} is null when the bytes are in the
+     * database (or nowhere); {@code fingerprint} is null until the file has
+     * been served once, and {@code renditions} holds the fingerprints of the
+     * renditions served so far. {@code noLegacyBytes} is set once a row
+     * without a file turned out to have no bytes in the database either, so
+     * later requests skip that lookup.
+     */
+    public record ImageMeta(Long imageId, Long modelNo, Path file, String contentType,
+            FileResponseWriter.Fingerprint fingerprint,
+            Map<ImageRenditionService.Rendition, FileResponseWriter.Fingerprint> renditions,
+            boolean noLegacyBytes) {
+
+        public ImageMeta withFingerprint(FileResponseWriter.Fingerprint fingerprint) {
+            return new ImageMeta(imageId, modelNo, file, contentType, fingerprint, renditions, noLegacyBytes);
+        }
+
+        public ImageMeta withoutLegacyBytes() {
+            return new ImageMeta(imageId, modelNo, file, contentType, fingerprint, renditions, true);
+        }
+
+        public ImageMeta withRendition(ImageRenditionService.Rendition rendition,
+                FileResponseWriter.Fingerprint renditionFingerprint) {
+            Map<ImageRenditionService.Rendition, FileResponseWriter.Fingerprint> updated = new EnumMap<>(
+                    ImageRenditionService.Rendition.class);
+            updated.putAll(renditions);
+            updated.put(rendition, renditionFingerprint);
+            return new ImageMeta(imageId, modelNo, file, contentType, fingerprint, Collections.unmodifiableMap(updated),
+                    noLegacyBytes);
+        }
+    }
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    private final int maxEntries;
+
+    // Access-ordered so the eldest entry is the least recently served one
+    private final LinkedHashMap<Long, ImageMeta> images;
+    private final LinkedHashMap<Long, List<Long>> firstVariantImages;
+
+    // Ids of the cached images by product, so invalidating a product does not scan every entry
+    private final Map<Long, Set<Long>> imageIdsByProduct = new HashMap<>();
+
+    // A load that overlapped an eviction of its image or an invalidation of its product is not cached
+    private final InvalidationVersions<Long> imageVersions = new InvalidationVersions<>();
+    private final InvalidationVersions<Long> productVersions = new InvalidationVersions<>();
+
+    public ImageMetadataCache(@Value("${app.cache.image-metadata.max-entries:50000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.images = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ImageMeta> eldest) {
+                if (size() > ImageMetadataCache.this.maxEntries) {
+                    unindex(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.firstVariantImages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<Long>> eldest) {
+                return size() > ImageMetadataCache.this.maxEntries / 10;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        List<Object[]> rows = productImageRepository.findSources(PageRequest.of(0, maxEntries));
+        synchronized (images) {
+            // Oldest first, so the newest images end up most recently used
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                ImageMeta meta = toMeta(rows.get(i));
+                if (!images.containsKey(meta.imageId())) {
+                    cache(meta);
+                }
+            }
+        }
+        log.info("Image metadata cache warmed with {} images in {} ms", rows.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Metadata of the image, or null if there is no such image.
+     */
+    public ImageMeta get(Long imageId) {
+        long imageLoadStart;
+        long productLoadStart;
+        synchronized (images) {
+            ImageMeta cached = images.get(imageId);
+            if (cached != null) {
+                return cached;
+            }
+            imageLoadStart = imageVersions.beginLoad();
+            productLoadStart = productVersions.beginLoad();
+        }
+
+        try {
+            List<Object[]> rows = productImageRepository.findSourceById(imageId);
+            if (rows.isEmpty()) {
+                return null;
+            }
+            ImageMeta meta = toMeta(rows.get(0));
+            synchronized (images) {
+                if (imageVersions.isCurrent(imageId, imageLoadStart)
+                        && productVersions.isCurrent(meta.modelNo(), productLoadStart)) {
+                    cache(meta);
+                }
+            }
+            return meta;
+        } finally {
+            synchronized (images) {
+                imageVersions.endLoad();
+                productVersions.endLoad();
+            }
+        }
+    }
+
+    /**
+     * Keeps the fingerprint of a served file, so later requests skip the
+     * file system as well.
+     */
+    public void remember(ImageMeta meta) {
+        synchronized (images) {
+            images.computeIfPresent(meta.imageId(), (id, current) -> meta);
+        }
+    }
+
+    /**
+     * Records that the image has neither a file nor bytes in the database, if
+     * its cached entry still has no file.
+     */
+    public void rememberNoLegacyBytes(Long imageId) {
+        synchronized (images) {
+            images.computeIfPresent(imageId,
+                    (id, current) -> current.file() == null ? current.withoutLegacyBytes() : current);
+        }
+    }
+
+    /**
+     * Image ids of the product's first variant, in upload order.
+     */
+    public List<Long> getFirstVariantImageIds(Long modelNo) {
+        long loadStart;
+        synchronized (images) {
+            List<Long> cached = firstVariantImages.get(modelNo);
+            if (cached != null) {
+                return cached;
+            }
+            loadStart = productVersions.beginLoad();
+        }
+
+        try {
+            List<Long> imageIds = List.copyOf(productImageRepository.findFirstVariantImageIds(modelNo));
+            synchronized (images) {
+                if (productVersions.isCurrent(modelNo, loadStart)) {
+                    firstVariantImages.put(modelNo, imageIds);
+                }
+            }
+            return imageIds;
+        } finally {
+            synchronized (images) {
+                productVersions.endLoad();
+            }
+        }
+    }
+
+    public void evict(Long imageId) {
+        synchronized (images) {
+            imageVersions.invalidate(imageId);
+            ImageMeta removed = images.remove(imageId);
+            if (removed != null) {
+                unindex(removed);
+            }
+        }
+    }
+
+    public void invalidateProduct(Long modelNo) {
+        synchronized (images) {
+            productVersions.invalidate(modelNo);
+            Set<Long> imageIds = imageIdsByProduct.remove(modelNo);
+            if (imageIds != null) {
+                imageIds.forEach(images::remove);
+            }
+            firstVariantImages.remove(modelNo);
+        }
+    }
+
+    public int size() {
+        synchronized (images) {
+            return images.size();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.getModelNo() != null && !event.getChangeType().isDetailOnly()) {
+            invalidateProduct(event.getModelNo());
+        }
+    }
+
+    // Helper methods
+
+    // Callers hold the images lock
+    private void cache(ImageMeta meta) {
+        ImageMeta replaced = images.put(meta.imageId(), meta);
+        if (replaced != null) {
+            unindex(replaced);
+        }
+        if (meta.modelNo() != null) {
+            imageIdsByProduct.computeIfAbsent(meta.modelNo(), modelNo -> new HashSet<>()).add(meta.imageId());
+        }
+    }
+
+    private void unindex(ImageMeta meta) {
+        if (meta.modelNo() == null) {
+            return;
+        }
+        Set<Long> imageIds = imageIdsByProduct.get(meta.modelNo());
+        if (imageIds != null && imageIds.remove(meta.imageId()) && imageIds.isEmpty()) {
+            imageIdsByProduct.remove(meta.modelNo());
+        }
+    }
+
+    // Row: [id, imageUrl, imageType, modelNo]
+    private ImageMeta toMeta(Object[] row) {
+        String imageUrl = (String) row[1];
+        return new ImageMeta((Long) row[0], (Long) row[3], fileStorageUtil.resolveStoredPath(imageUrl),
+                contentType((String) row[2], imageUrl), null, Map.of(), false);
+    }
+
+    private static String contentType(String mimeType, String imageUrl) {
+        // Fallback to extension check if on disk and mimeType is missing/generic
+        if ((mimeType == null || mimeType.equals("application/octet-stream")) && imageUrl != null) {
+            String lower = imageUrl.toLowerCase();
+            if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+                mimeType = "image/jpeg";
+            } else if (lower.endsWith(".png")) {
+                mimeType = "image/png";
+            } else if (lower.endsWith(".webp")) {
+                mimeType = "image/webp";
+            }
+        }
+        return mimeType != null && !mimeType.equals("application/octet-stream") ? mimeType : "image/jpeg";
+    }
+}
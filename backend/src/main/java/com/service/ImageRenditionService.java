@@ -0,0 +1,266 @@
+package com.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ImageRenditionService
+ * =====================
+ *
+ * Downscaled JPEG copies of uploaded product images, so listing tiles and
+ * cart lines do not download the original. Every rendition is written next
+ * to its original as "{original file name}.{width}w.jpg"; a rendition never
+ * upscales, so for a small original it is just a re-encoded copy.
+ *
+ * Renditions are produced on a small pool of their own right after an upload
+ * is stored, and lazily for older uploads the first time one is asked for
+ * (ImageController serves the original meanwhile). The queue is bounded by
+ * app.image.rendition.queue-capacity: when it is full the request is dropped
+ * and retried on the next miss. Originals ImageIO cannot decode, or larger
+ * than app.image.rendition.max-pixels, are remembered and not tried again.
+ */
+@Service
+@Slf4j
+public class ImageRenditionService {
+
+    public enum Rendition {
+        THUMB(200),
+        CARD(480),
+        DETAIL(1080);
+
+        private final int width;
+
+        Rendition(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Smallest rendition at least the requested width wide, or null when
+         * only the original is wide enough.
+         */
+        public static Rendition forWidth(int requestedWidth) {
+            for (Rendition rendition : values()) {
+                if (rendition.width >= requestedWidth) {
+                    return rendition;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int MAX_UNRENDERABLE = 10_000;
+
+    private final ThreadPoolExecutor executor;
+
+    // Originals queued or being rendered, so a burst of misses renders them once
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Map<Path, Boolean> unrenderable = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+            return size() > MAX_UNRENDERABLE;
+        }
+    };
+
+    @Value("${app.image.rendition.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${app.image.rendition.max-pixels:50000000}")
+    private long maxPixels;
+
+    public ImageRenditionService(@Value("${app.image.rendition.threads:2}") int threads,
+            @Value("${app.image.rendition.queue-capacity:500}") int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-rendition-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static Path pathOf(Path original, Rendition rendition) {
+        return original.resolveSibling(original.getFileName() + "." + rendition.width + "w.jpg");
+    }
+
+    /**
+     * Queues the renditions of an uploaded original. Returns immediately;
+     * does nothing if they are already queued or cannot be produced.
+     */
+    public void submit(Path original) {
+        if (original == null || isUnrenderable(original) || !inFlight.add(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    render(original);
+                } finally {
+                    inFlight.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(original);
+            log.debug("Rendition queue is full, skipping {} for now", original.getFileName());
+        }
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Unfinished renditions are produced again on demand
+        executor.shutdownNow();
+    }
+
+    // Helper methods
+
+    private void render(Path original) {
+        long start = System.currentTimeMillis();
+        try {
+            // Content-addressed originals are shared, so the renditions may be there from an earlier upload
+            if (Arrays.stream(Rendition.values()).allMatch(rendition -> Files.exists(pathOf(original, rendition)))) {
+                return;
+            }
+            BufferedImage source = read(original);
+            if (source == null) {
+                markUnrenderable(original);
+                return;
+            }
+            for (Rendition rendition : Rendition.values()) {
+                Path target = pathOf(original, rendition);
+                if (!Files.exists(target)) {
+                    writeJpeg(scaleToWidth(source, rendition.width), target);
+                }
+            }
+            log.debug("Rendered {} ({}x{}) in {} ms", original.getFileName(), source.getWidth(), source.getHeight(),
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not render {}: {}", original.getFileName(), e.getMessage());
+            markUnrenderable(original);
+        }
+    }
+
+    // Null if ImageIO has no reader for the format or the image is too large to decode safely
+    private BufferedImage read(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Not rendering {}: {} pixels is over the limit", original.getFileName(), pixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves in steps before the last bilinear pass, which keeps large downscales sharp without BICUBIC's cost
+    private static BufferedImage scaleToWidth(BufferedImage source, int maxWidth) {
+        int targetWidth = Math.min(maxWidth, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            // JPEG has no alpha: transparent areas become white
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // Written to a temporary file and moved into place, so a half-written rendition is never served
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".rendition", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private boolean isUnrenderable(Path original) {
+        synchronized (unrenderable) {
+            return unrenderable.containsKey(original);
+        }
+    }
+
+    private void markUnrenderable(Path original) {
+        synchronized (unrenderable) {
+            unrenderable.put(original, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link CartStore} in a ConcurrentHashMap of this JVM. Each change replaces
+ * the user's entry inside {@code compute}, so changes to one cart are
+ * serialized while different carts never contend. Used unless app.cart.store
+ * names another implementation.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory", matchIfMissing = true)
+public class InProcessCartStore implements CartStore {
+
+    private static final class Entry {
+        final Map<Long, Integer> lines;
+        final long version;
+        final long persistedVersion;
+        // Reads only touch this, they never replace the entry
+        volatile long lastAccess;
+
+        Entry(Map<Long, Integer> lines, long version, long persistedVersion, long lastAccess) {
+            this.lines = lines;
+            this.version = version;
+            this.persistedVersion = persistedVersion;
+            this.lastAccess = lastAccess;
+        }
+
+        boolean isDirty() {
+            return version != persistedVersion;
+        }
+
+        StoredCart toStoredCart() {
+            return new StoredCart(lines, version);
+        }
+    }
+
+    private final Map<Long, Entry> carts = new ConcurrentHashMap<>();
+
+    @Override
+    public StoredCart get(Long userId, Function<Long, Map<Long, Integer>> loader) {
+        Entry entry = carts.get(userId);
+        if (entry == null) {
+            entry = carts.computeIfAbsent(userId, id -> loaded(loader.apply(id)));
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        return entry.toStoredCart();
+    }
+
+    @Override
+    public StoredCart update(Long userId, Function<Long, Map<Long, Integer>> loader,
+            Consumer<Map<Long, Integer>> change) {
+        long now = System.currentTimeMillis();
+        return carts.compute(userId, (id, current) -> {
+            Entry entry = current != null ? current : loaded(loader.apply(id));
+            Map<Long, Integer> lines = new LinkedHashMap<>(entry.lines);
+            change.accept(lines);
+            if (lines.equals(entry.lines)) {
+                entry.lastAccess = now;
+                return entry;
+            }
+            return new Entry(Collections.unmodifiableMap(lines), entry.version + 1, entry.persistedVersion, now);
+        }).toStoredCart();
+    }
+
+    @Override
+    public void remove(Long userId) {
+        carts.remove(userId);
+    }
+
+    @Override
+    public StoredCart find(Long userId) {
+        Entry entry = carts.get(userId);
+        return entry != null ? entry.toStoredCart() : null;
+    }
+
+    @Override
+    public Map<Long, StoredCart> findDirty() {
+        Map<Long, StoredCart> dirty = new HashMap<>();
+        carts.forEach((userId, entry) -> {
+            if (entry.isDirty()) {
+                dirty.put(userId, entry.toStoredCart());
+            }
+        });
+        return dirty;
+    }
+
+    @Override
+    public void markPersisted(Long userId, long version) {
+        carts.computeIfPresent(userId, (id, entry) -> version > entry.persistedVersion
+                ? new Entry(entry.lines, entry.version, version, entry.lastAccess)
+                : entry);
+    }
+
+    @Override
+    public int evictIdle(long idleMillis) {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        AtomicInteger evicted = new AtomicInteger();
+        for (Long userId : carts.keySet()) {
+            carts.computeIfPresent(userId, (id, entry) -> {
+                if (!entry.isDirty() && entry.lastAccess < cutoff) {
+                    evicted.incrementAndGet();
+                    return null;
+                }
+                return entry;
+            });
+        }
+        return evicted.get();
+    }
+
+    @Override
+    public int size() {
+        return carts.size();
+    }
+
+    private static Entry loaded(Map<Long, Integer> lines) {
+        return new Entry(Collections.unmodifiableMap(new LinkedHashMap<>(lines)), 0, 0, System.currentTimeMillis());
+    }
+}
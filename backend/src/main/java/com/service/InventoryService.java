@@ -2,14 +2,22 @@ package com.service;
 
 import com.entity.Product;
 import com.entity.ProductVariant;
+import com.event.ProductCatalogChangedEvent;
 import com.repository.ProductRepository;
 import com.repository.ProductVariantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,40 +29,115 @@ public class InventoryService {
     @Autowired
     private ProductVariantRepository productVariantRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
+
     /**
      * Check if enough stock is available for a variant
      */
     public boolean checkStockAvailability(Long variantId, int requestedQuantity) {
-        ProductVariant variant = productVariantRepository
-                .findById(Objects.requireNonNull(variantId, "Variant ID is required"))
+        return getAvailableToSell(variantId) >= requestedQuantity;
+    }
+
+    /**
+     * Units that can still be sold. Stock held for unpaid orders is already
+     * subtracted from the variant quantity (see StockReservationService), so
+     * this is a single-column read.
+     */
+    public int getAvailableToSell(Long variantId) {
+        Integer hot = hotSkuInventory.getAvailable(variantId);
+        if (hot != null) {
+            return hot;
+        }
+        return productVariantRepository
+                .findQuantityById(Objects.requireNonNull(variantId, "Variant ID is required"))
                 .orElseThrow(() -> new RuntimeException("Variant not found"));
-        return variant.getQuantity() >= requestedQuantity;
     }
 
-    // reduceStock and restoreStock are now handled directly in OrderService
-    // keeping them here if needed for other flows, but updating to use variant
+    // Stock is only ever changed by single conditional statements so concurrent
+    // checkouts can't oversell: the row lock is held for one UPDATE, the
+    // "enough stock?" check and the decrement are the same statement, and no
+    // version column means no optimistic-lock retries.
+    private static final String DECREMENT_SQL = "UPDATE product_variant SET quantity = quantity - ? "
+            + "WHERE id = ? AND quantity >= ?";
+    private static final String INCREMENT_SQL = "UPDATE product_variant SET quantity = quantity + ? WHERE id = ?";
 
+    /**
+     * Atomically takes stock for every line of an order (variantId -> quantity)
+     * in one JDBC batch. If any line is short, throws and the surrounding
+     * transaction rolls back the lines already taken. Lines are applied in
+     * variant id order so two orders sharing variants can't deadlock.
+     */
     @Transactional
-    public void reduceStock(Long variantId, int quantity) {
-        ProductVariant variant = productVariantRepository
-                .findById(Objects.requireNonNull(variantId, "Variant ID is required"))
-                .orElseThrow(() -> new RuntimeException("Variant not found"));
+    public void reserveStock(Map<Long, Integer> quantities) {
+        // Flash-sale variants are admitted in memory first, without row locks
+        Map<Long, Integer> hot = hotSkuInventory.hotLines(quantities);
+        if (!hot.isEmpty()) {
+            Long shortVariant = hotSkuInventory.take(hot);
+            if (shortVariant != null) {
+                throw new RuntimeException("Insufficient stock for product: " + productName(shortVariant));
+            }
+        }
+
+        TreeMap<Long, Integer> cold = new TreeMap<>(quantities);
+        cold.keySet().removeAll(hot.keySet());
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(cold.entrySet());
+        if (lines.isEmpty()) {
+            return;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(DECREMENT_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+            ps.setInt(3, line.getValue());
+        });
+        // Connector/J reports exact per-statement counts unless rewriteBatchedStatements is on
+        for (int i = 0; i < lines.size(); i++) {
+            if (counts[0][i] == 0) {
+                throw new RuntimeException("Insufficient stock for product: " + productName(lines.get(i).getKey()));
+            }
+        }
+    }
+
+    /**
+     * Puts stock back for order lines (cancellation, deletion, expired holds).
+     */
+    @Transactional
+    public void releaseStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> hot = hotSkuInventory.hotLines(quantities);
+        if (!hot.isEmpty()) {
+            hotSkuInventory.release(hot);
+        }
 
-        if (variant.getQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock for product: " + variant.getProduct().getName());
+        TreeMap<Long, Integer> cold = new TreeMap<>(quantities);
+        cold.keySet().removeAll(hot.keySet());
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(cold.entrySet());
+        if (lines.isEmpty()) {
+            return;
         }
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+        });
+    }
 
-        variant.setQuantity(variant.getQuantity() - quantity);
-        productVariantRepository.save(variant);
+    @Transactional
+    public void reduceStock(Long variantId, int quantity) {
+        Objects.requireNonNull(variantId, "Variant ID is required");
+        reserveStock(Map.of(variantId, quantity));
+        publishStockChange(variantId);
     }
 
     @Transactional
     public void restoreStock(Long variantId, int quantity) {
-        ProductVariant variant = productVariantRepository
-                .findById(Objects.requireNonNull(variantId, "Variant ID is required"))
-                .orElseThrow(() -> new RuntimeException("Variant not found"));
-        variant.setQuantity(variant.getQuantity() + quantity);
-        productVariantRepository.save(variant);
+        Objects.requireNonNull(variantId, "Variant ID is required");
+        releaseStock(Map.of(variantId, quantity));
+        publishStockChange(variantId);
     }
 
     /**
@@ -89,11 +172,29 @@ public class InventoryService {
             throw new RuntimeException("Stock quantity cannot be negative");
         }
 
+        // A hot variant's stock is partly in memory: settle it, set the new
+        // absolute value on the row and reseed the counter once that commits
+        boolean hot = hotSkuInventory.isHot(variantId);
+        if (hot) {
+            hotSkuInventory.disable(variantId);
+        }
+
         ProductVariant variant = productVariantRepository
                 .findById(Objects.requireNonNull(variantId, "Variant ID is required"))
                 .orElseThrow(() -> new RuntimeException("Variant not found"));
         variant.setQuantity(newQuantity);
-        return productVariantRepository.save(variant);
+        ProductVariant saved = productVariantRepository.save(variant);
+        publishStockChange(saved);
+
+        if (hot) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    hotSkuInventory.enable(variantId);
+                }
+            });
+        }
+        return saved;
     }
 
     /**
@@ -109,6 +210,26 @@ public class InventoryService {
         Product product = productRepository.findById(Objects.requireNonNull(productId, "Product ID is required"))
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         product.setLowStockThreshold(threshold);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, saved.getModelNo(),
+                ProductCatalogChangedEvent.ChangeType.STOCK_UPDATED));
+        return saved;
+    }
+
+    private String productName(Long variantId) {
+        return productVariantRepository.findById(variantId)
+                .map(v -> v.getProduct() != null ? v.getProduct().getName() : "variant " + variantId)
+                .orElseThrow(() -> new RuntimeException("Variant not found"));
+    }
+
+    private void publishStockChange(Long variantId) {
+        productVariantRepository.findById(variantId).ifPresent(this::publishStockChange);
+    }
+
+    private void publishStockChange(ProductVariant variant) {
+        if (variant.getProduct() != null) {
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, variant.getProduct().getModelNo(),
+                    ProductCatalogChangedEvent.ChangeType.STOCK_UPDATED));
+        }
     }
 }
@@ -0,0 +1,182 @@
+package com.service;
+
+import com.entity.OrderStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * OrderExportService
+ * ==================
+ *
+ * Streams orders straight from a database cursor to the response as CSV (one
+ * line per order item) or NDJSON (one JSON object per order). Only the order
+ * currently being written is held in memory, so export size is bounded by the
+ * client, not the heap.
+ */
+@Service
+@Slf4j
+public class OrderExportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    public record ExportedItem(String productName, int quantity, double price, Long tenantId, String size,
+            String color) {
+    }
+
+    public record ExportedOrder(Long orderId, LocalDateTime orderDate, String status, String paymentStatus,
+            String paymentMethod, double totalAmount, double discount, String shippingAddress, Long userId,
+            String userName, String userEmail, List<ExportedItem> items) {
+    }
+
+    private static final String CSV_HEADER = "orderId,orderDate,status,paymentStatus,paymentMethod,totalAmount,"
+            + "discount,userId,userName,userEmail,productName,quantity,price,tenantId,size,color,shippingAddress";
+
+    private static final int FLUSH_EVERY = 500;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes every order matching the filters (all optional) to the stream and
+     * returns the number of orders written. Must run inside a transaction for
+     * the cursor to stay open, hence the proxy call from the controller.
+     */
+    @Transactional(readOnly = true)
+    public long export(OrderStatus status, LocalDateTime fromDate, LocalDateTime toDate, Long tenantId,
+            Format format, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long written = 0;
+        try (Stream<Object[]> rows = orderRepository.streamExportRows(status, fromDate, toDate, tenantId)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            ExportedOrder current = null;
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                Long orderId = (Long) row[0];
+                if (current == null || !current.orderId().equals(orderId)) {
+                    if (current != null) {
+                        write(writer, current, format);
+                        if (++written % FLUSH_EVERY == 0) {
+                            writer.flush();
+                        }
+                    }
+                    current = toOrder(row);
+                }
+                // Rows for an order without items carry null item columns
+                if (row[11] != null) {
+                    current.items().add(toItem(row));
+                }
+            }
+            if (current != null) {
+                write(writer, current, format);
+                written++;
+            }
+        }
+        writer.flush();
+
+        log.info("Exported {} orders as {} in {} ms", written, format, System.currentTimeMillis() - start);
+        return written;
+    }
+
+    // Helper methods
+
+    private ExportedOrder toOrder(Object[] row) {
+        return new ExportedOrder(
+                (Long) row[0],
+                (LocalDateTime) row[1],
+                row[2] != null ? row[2].toString() : null,
+                row[3] != null ? row[3].toString() : null,
+                (String) row[4],
+                row[5] != null ? ((Number) row[5]).doubleValue() : 0.0,
+                row[6] != null ? ((Number) row[6]).doubleValue() : 0.0,
+                (String) row[7],
+                (Long) row[8],
+                (String) row[9],
+                (String) row[10],
+                new ArrayList<>());
+    }
+
+    private ExportedItem toItem(Object[] row) {
+        return new ExportedItem(
+                (String) row[12],
+                row[13] != null ? ((Number) row[13]).intValue() : 0,
+                row[14] != null ? ((Number) row[14]).doubleValue() : 0.0,
+                (Long) row[15],
+                (String) row[16],
+                (String) row[17]);
+    }
+
+    private void write(Writer writer, ExportedOrder order, Format format) throws IOException {
+        if (format == Format.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(order));
+            writer.write('\n');
+            return;
+        }
+
+        if (order.items().isEmpty()) {
+            writeCsvLine(writer, order, null);
+        }
+        for (ExportedItem item : order.items()) {
+            writeCsvLine(writer, order, item);
+        }
+    }
+
+    private void writeCsvLine(Writer writer, ExportedOrder order, ExportedItem item) throws IOException {
+        Object[] values = {
+                order.orderId(), order.orderDate(), order.status(), order.paymentStatus(), order.paymentMethod(),
+                order.totalAmount(), order.discount(), order.userId(), order.userName(), order.userEmail(),
+                item != null ? item.productName() : null,
+                item != null ? item.quantity() : null,
+                item != null ? item.price() : null,
+                item != null ? item.tenantId() : null,
+                item != null ? item.size() : null,
+                item != null ? item.color() : null,
+                order.shippingAddress()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csv(values[i]));
+        }
+        writer.write('\n');
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,159 @@
+package com.service;
+
+import com.event.OrderPlacedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OrderPlacementPipeline
+ * ======================
+ *
+ * Side effects of a placed order that the customer should not wait for:
+ * the ORDER_CONFIRMED tracking record, the invoice PDF and the confirmation
+ * email. They start once the order transaction commits (so they see the
+ * order, and never run for a checkout that rolled back) and run as stages on
+ * a small pool of their own: TRACKING, INVOICE, EMAIL.
+ *
+ * A failed stage is retried with exponential backoff, scheduled on the pool
+ * rather than sleeping in it; after app.order.pipeline.max-attempts it is
+ * logged and skipped (an order whose invoice cannot be rendered still gets
+ * its email, without the attachment). At most app.order.pipeline.max-pending
+ * orders are queued; beyond that the stages run on the committing thread, so
+ * a backlog slows checkout down instead of dropping confirmations.
+ */
+@Service
+@Slf4j
+public class OrderPlacementPipeline {
+
+    private enum Stage {
+        TRACKING,
+        INVOICE,
+        EMAIL,
+        DONE
+    }
+
+    private final class Job implements Runnable {
+        final OrderPlacedEvent event;
+        Stage stage = Stage.TRACKING;
+        int attempts;
+        byte[] invoicePdf;
+
+        Job(OrderPlacedEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            while (stage != Stage.DONE) {
+                try {
+                    runStage(this);
+                } catch (Exception e) {
+                    attempts++;
+                    if (attempts < maxAttempts && retryLater(e)) {
+                        return;
+                    }
+                    log.error("Order {} {} failed after {} attempts, skipping it", event.getOrderId(), stage,
+                            attempts, e);
+                }
+                stage = Stage.values()[stage.ordinal() + 1];
+                attempts = 0;
+            }
+            pending.decrementAndGet();
+        }
+
+        private boolean retryLater(Exception failure) {
+            long delay = retryDelayMs << (attempts - 1);
+            try {
+                executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                return false;
+            }
+            log.warn("Order {} {} failed (attempt {}), retrying in {} ms: {}", event.getOrderId(), stage, attempts,
+                    delay, failure.getMessage());
+            return true;
+        }
+    }
+
+    @Autowired
+    private OrderTrackingService orderTrackingService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private EmailService emailService;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @Value("${app.order.pipeline.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${app.order.pipeline.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.order.pipeline.retry-delay-ms:2000}")
+    private long retryDelayMs;
+
+    public OrderPlacementPipeline(@Value("${app.order.pipeline.threads:2}") int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "order-pipeline-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        Job job = new Job(event);
+        if (pending.incrementAndGet() > maxPending) {
+            log.warn("Order pipeline backlog is full, running order {} inline", event.getOrderId());
+            job.run();
+            return;
+        }
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            job.run();
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Order pipeline stopped with {} orders unfinished", pending.get());
+            executor.shutdownNow();
+        }
+    }
+
+    private void runStage(Job job) {
+        Long orderId = job.event.getOrderId();
+        switch (job.stage) {
+            case TRACKING -> orderTrackingService.addOrderConfirmedRecord(orderId);
+            case INVOICE -> job.invoicePdf = invoiceService.generateInvoice(orderId);
+            case EMAIL -> emailService.deliverOrderConfirmation(job.event.getEmail(), orderId.toString(),
+                    job.invoicePdf);
+            default -> {
+            }
+        }
+    }
+}
@@ -3,28 +3,40 @@ package com.service;
 import com.dto.AdminOrderDTO;
 import com.dto.OrderResponseDTO;
 import com.entity.*;
+import com.exception.InvalidCursorException;
 import com.mapper.OrderMapper;
-import com.repository.CartRepository;
+import com.payload.response.CursorPage;
 import com.repository.OrderRepository;
+import com.util.CursorCodec;
 // import com.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import org.springframework.context.ApplicationEventPublisher;
+import com.event.OrderSalesChangedEvent;
+import com.event.OrderPlacedEvent;
 import com.event.OrderStatusChangedEvent;
+import com.event.ProductCatalogChangedEvent;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class OrderService {
 
-    @Autowired
-    private CartRepository cartRepository;
     @Autowired
     private OrderRepository orderRepository;
 
@@ -47,7 +59,13 @@ public class OrderService {
     private SettlementService settlementService;
 
     @Autowired
-    private OrderTrackingService orderTrackingService;
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Transactional
     public OrderResponseDTO placeOrder(User user, com.payload.request.OrderRequest request) {
@@ -118,12 +136,8 @@ public class OrderService {
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setPrice(cartItem.getPrice());
 
-            // Reduce stock
+            // Stock is taken below in one conditional batch, never via the entity
             ProductVariant variant = cartItem.getVariant();
-            if (variant.getQuantity() < cartItem.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + variant.getProduct().getName());
-            }
-            variant.setQuantity(variant.getQuantity() - cartItem.getQuantity());
 
             // --- FINANCIAL & DATA SNAPSHOTS (IMMUTABILITY) ---
             Product product = variant.getProduct();
@@ -159,44 +173,24 @@ public class OrderService {
 
         // Clear the cart
         try {
-            cart.getItems().clear();
-            cart.setTotalAmount(0.0);
-            cartRepository.save(cart);
+            cartService.clearAfterCheckout(user, cart);
         } catch (Exception e) {
             System.err.println("Warning: Failed to clear cart: " + e.getMessage());
         }
 
-        // Generate Invoice
-        byte[] invoicePdf = null;
-        try {
-            invoicePdf = invoiceService.generateInvoice(savedOrder.getId());
-        } catch (Exception e) {
-            System.err.println("Failed to generate invoice: " + e.getMessage());
+        // Reduce stock. Done as late as possible so the variant row locks are
+        // held only until commit; a short line throws and rolls the order back.
+        Map<Long, Integer> reserved = quantitiesByVariant(orderItems);
+        inventoryService.reserveStock(reserved);
+        if (stockReservationService.holdsStockUntilPaid(savedOrder.getPaymentMethod())) {
+            // Given back automatically if the payment doesn't arrive in time
+            stockReservationService.hold(savedOrder.getId(), reserved);
         }
+        orderItems.stream().map(OrderItem::getVariant).distinct().forEach(this::publishStockChange);
 
-        // Add initial tracking record
-        try {
-            Moderator moderator = orderItems.get(0).getVariant().getProduct().getModerator();
-            String city = (moderator != null && moderator.getWarehouseCity() != null) ? moderator.getWarehouseCity()
-                    : "Mumbai";
-            String state = (moderator != null && moderator.getWarehouseState() != null) ? moderator.getWarehouseState()
-                    : "Maharashtra";
-
-            OrderTracking tracking = orderTrackingService.addTrackingRecord(savedOrder.getId(),
-                    TrackingStatus.ORDER_CONFIRMED,
-                    city, state, "Order has been confirmed and is being prepared.");
-
-            // Add to the list on the object so it's included in the returned DTO
-            if (savedOrder.getTrackingHistory() == null) {
-                savedOrder.setTrackingHistory(new java.util.ArrayList<>());
-            }
-            savedOrder.getTrackingHistory().add(tracking);
-        } catch (Exception e) {
-            System.err.println("Non-fatal error: Failed to add initial tracking: " + e.getMessage());
-        }
-
-        eventPublisher.publishEvent(new OrderStatusChangedEvent(this,
-                user.getEmail(), savedOrder.getId().toString(), user.getName(), invoicePdf));
+        // Tracking record, invoice and confirmation email follow once this commits
+        eventPublisher.publishEvent(new OrderPlacedEvent(this, savedOrder.getId(), user.getEmail()));
+        publishSalesChange(savedOrder, null);
 
         return OrderMapper.toResponseDTO(savedOrder);
     }
@@ -245,8 +239,12 @@ public class OrderService {
     public OrderResponseDTO updateOrderStatus(Long orderId, OrderStatus status) {
         Order order = getOrderById(orderId);
         OrderStatus oldStatus = order.getStatus();
+        OrderSalesChangedEvent.Contribution before = OrderSalesChangedEvent.Contribution.of(order);
         order.setStatus(status);
         Order savedOrder = orderRepository.save(order);
+        if (oldStatus != status) {
+            publishSalesChange(savedOrder, before);
+        }
 
         // Publish status update event (Async Email)
         if (oldStatus != status) {
@@ -266,17 +264,26 @@ public class OrderService {
     @Transactional
     public Order cancelOrder(Long orderId) {
         Order order = getOrderById(orderId);
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            // Stock was already returned (by an earlier cancel or an expired payment hold)
+            return order;
+        }
 
-        // Restore product stock
-        for (OrderItem item : order.getItems()) {
-            ProductVariant variant = item.getVariant();
-            if (variant != null) {
-                variant.setQuantity(variant.getQuantity() + item.getQuantity());
-            }
+        if (stockReservationService.cancel(orderId) == 0 && stockReservationService.isReleased(orderId)) {
+            // The hold expired after the order was loaded: expiry gave the stock back and cancelled it already
+            entityManager.refresh(order, LockModeType.PESSIMISTIC_READ);
+            return order;
         }
 
+        // Restore product stock
+        inventoryService.releaseStock(quantitiesByVariant(order.getItems()));
+        order.getItems().stream().map(OrderItem::getVariant).filter(Objects::nonNull).distinct()
+                .forEach(this::publishStockChange);
+
+        OrderSalesChangedEvent.Contribution before = OrderSalesChangedEvent.Contribution.of(order);
         order.setStatus(OrderStatus.CANCELLED);
         Order savedOrder = orderRepository.save(order);
+        publishSalesChange(savedOrder, before);
 
         User user = order.getUser();
         eventPublisher.publishEvent(new OrderStatusChangedEvent(
@@ -295,6 +302,32 @@ public class OrderService {
         return orderRepository.findAll().stream().map(OrderMapper::toAdminDTO).toList();
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<AdminOrderDTO> getOrdersPage(String after, int size) {
+        Pageable pageable = PageRequest.of(0, size);
+        CursorCodec.Cursor cursor = CursorCodec.decode(after);
+        Slice<Order> slice;
+        if (cursor == null) {
+            slice = orderRepository.findAllByOrderByOrderDateDescIdDesc(pageable);
+        } else {
+            LocalDateTime orderDate;
+            try {
+                orderDate = LocalDateTime.parse(cursor.sortKey());
+            } catch (DateTimeParseException e) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            slice = orderRepository.findPageAfter(orderDate, cursor.id(), pageable);
+        }
+
+        List<Order> orders = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !orders.isEmpty()) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = CursorCodec.encode(last.getOrderDate(), last.getId());
+        }
+        return new CursorPage<>(orders.stream().map(OrderMapper::toAdminDTO).toList(), nextCursor, slice.hasNext());
+    }
+
     @Transactional(readOnly = true)
     public List<OrderResponseDTO> getUserOrdersDTO(User user) {
         return orderRepository.findByUser(user).stream().map(OrderMapper::toResponseDTO).toList();
@@ -318,7 +351,9 @@ public class OrderService {
 
             // Update basic status if provided
             OrderStatus status = OrderStatus.valueOf(statusStr.toUpperCase());
+            OrderSalesChangedEvent.Contribution before = null;
             if (status != order.getStatus()) {
+                before = OrderSalesChangedEvent.Contribution.of(order);
                 order.setStatus(status);
             }
 
@@ -346,6 +381,9 @@ public class OrderService {
             log.debug("Saving order with new tracking record. OrderId: {}, Current Status: {}", orderId,
                     order.getStatus());
             Order savedOrder = orderRepository.save(order);
+            if (before != null) {
+                publishSalesChange(savedOrder, before);
+            }
 
             // Publish tracking update event (Async Email)
             User user = order.getUser();
@@ -368,18 +406,49 @@ public class OrderService {
     public void deleteOrder(Long orderId) {
         Order order = getOrderById(orderId);
 
-        // Restore product stock before deleting
-        for (OrderItem item : order.getItems()) {
-            ProductVariant variant = item.getVariant();
-            if (variant != null) {
-                variant.setQuantity(variant.getQuantity() + item.getQuantity());
-            }
+        // Restore product stock before deleting, unless a cancellation or expiry already did
+        if (stockReservationService.cancel(orderId) == 0 && stockReservationService.isReleased(orderId)) {
+            // Cancelled by expiry after it was loaded; the locking refresh reads past this transaction's snapshot
+            entityManager.refresh(order, LockModeType.PESSIMISTIC_READ);
+        }
+        if (order.getStatus() != OrderStatus.CANCELLED) {
+            inventoryService.releaseStock(quantitiesByVariant(order.getItems()));
+            order.getItems().stream().map(OrderItem::getVariant).filter(Objects::nonNull).distinct()
+                    .forEach(this::publishStockChange);
         }
+        stockReservationService.delete(orderId);
 
+        OrderSalesChangedEvent.Contribution before = OrderSalesChangedEvent.Contribution.of(order);
         orderRepository.delete(order);
+        publishSalesChange(order, before, null);
     }
 
     public byte[] generateInvoice(Long orderId) {
         return invoiceService.generateInvoice(orderId);
     }
+
+    private void publishSalesChange(Order order, OrderSalesChangedEvent.Contribution before) {
+        publishSalesChange(order, before, OrderSalesChangedEvent.Contribution.of(order));
+    }
+
+    private void publishSalesChange(Order order, OrderSalesChangedEvent.Contribution before,
+            OrderSalesChangedEvent.Contribution after) {
+        if (order.getOrderDate() != null) {
+            eventPublisher.publishEvent(new OrderSalesChangedEvent(this, order.getOrderDate().toLocalDate(), before,
+                    after));
+        }
+    }
+
+    private Map<Long, Integer> quantitiesByVariant(List<OrderItem> items) {
+        return items.stream()
+                .filter(item -> item.getVariant() != null)
+                .collect(Collectors.toMap(item -> item.getVariant().getId(), OrderItem::getQuantity, Integer::sum));
+    }
+
+    private void publishStockChange(ProductVariant variant) {
+        if (variant.getProduct() != null) {
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, variant.getProduct().getModelNo(),
+                    ProductCatalogChangedEvent.ChangeType.STOCK_UPDATED));
+        }
+    }
 }
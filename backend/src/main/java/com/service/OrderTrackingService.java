@@ -1,5 +1,6 @@
 package com.service;
 
+import com.entity.Moderator;
 import com.entity.Order;
 import com.entity.OrderTracking;
 import com.entity.TrackingStatus;
@@ -31,6 +32,32 @@ public class OrderTrackingService {
         return orderTrackingRepository.save(tracking);
     }
 
+    /**
+     * Adds the ORDER_CONFIRMED record of a newly placed order, located at the
+     * warehouse of the first item's moderator. Does nothing if the order
+     * already has one, so the order pipeline can retry it. Always in its own
+     * transaction: the pipeline's inline fallback runs inside the checkout's
+     * after-commit callback, where a joined transaction never commits.
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
+    public void addOrderConfirmedRecord(Long orderId) {
+        if (orderTrackingRepository.existsByOrderIdAndStatus(orderId, TrackingStatus.ORDER_CONFIRMED)) {
+            return;
+        }
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        Moderator moderator = order.getItems().isEmpty() ? null
+                : order.getItems().get(0).getVariant().getProduct().getModerator();
+        String city = (moderator != null && moderator.getWarehouseCity() != null) ? moderator.getWarehouseCity()
+                : "Mumbai";
+        String state = (moderator != null && moderator.getWarehouseState() != null) ? moderator.getWarehouseState()
+                : "Maharashtra";
+
+        orderTrackingRepository.save(new OrderTracking(order, TrackingStatus.ORDER_CONFIRMED, city, state,
+                "Order has been confirmed and is being prepared."));
+    }
+
     public List<OrderTracking> getTrackingTimeline(Long orderId) {
         return orderTrackingRepository.findByOrderIdOrderByTimestampAsc(orderId);
     }
@@ -4,9 +4,11 @@ import com.entity.Moderator;
 import com.entity.Order;
 import com.entity.Payment;
 import com.entity.PaymentStatus;
+import com.event.OrderSalesChangedEvent;
 import com.repository.OrderRepository;
 import com.repository.PaymentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,6 +36,12 @@ public class PaymentService {
     @Autowired
     private SettlementService settlementService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
     public String generateUPIString(double amount, String orderId) {
         try {
             Order order = orderRepository.findById(Long.parseLong(orderId)).orElse(null);
@@ -112,14 +120,22 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
 
+        // Turn the checkout stock hold into a sale; throws if it expired and sold out
+        stockReservationService.commit(payment.getOrder().getId());
+
         payment.setStatus(PaymentStatus.COMPLETED);
         payment.setPaymentDate(LocalDateTime.now());
         Payment savedPayment = paymentRepository.save(payment);
 
         Order order = payment.getOrder();
+        OrderSalesChangedEvent.Contribution before = OrderSalesChangedEvent.Contribution.of(order);
         order.setPaymentStatus(PaymentStatus.COMPLETED);
         order.setPaymentReference(transactionId);
         orderRepository.save(order);
+        if (order.getOrderDate() != null) {
+            eventPublisher.publishEvent(new OrderSalesChangedEvent(this, order.getOrderDate().toLocalDate(), before,
+                    OrderSalesChangedEvent.Contribution.of(order)));
+        }
 
         // Ledger-based settlement creation (idempotent)
         try {
@@ -1,11 +1,8 @@
 package com.service;
 
 import com.entity.AttributeValue;
-import com.entity.ProductAttribute;
 import com.entity.ProductVariant;
 import com.entity.VariantAttributeValue;
-import com.repository.AttributeValueRepository;
-import com.repository.ProductAttributeRepository;
 // import com.repository.VariantAttributeValueRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,10 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class ProductAttributeService {
 
     @Autowired
-    private ProductAttributeRepository attributeRepository;
-
-    @Autowired
-    private AttributeValueRepository valueRepository;
+    private AttributeDictionary attributeDictionary;
 
     @Transactional
     public void syncAttributes(ProductVariant variant, String color, String colorHex, String size) {
@@ -31,27 +25,7 @@ public class ProductAttributeService {
     }
 
     private void updateAttribute(ProductVariant variant, String attrName, String value, String metadata) {
-        ProductAttribute attr = attributeRepository.findByName(attrName)
-                .orElseGet(() -> {
-                    ProductAttribute newAttr = new ProductAttribute();
-                    newAttr.setName(attrName);
-                    return attributeRepository.save(newAttr);
-                });
-
-        AttributeValue finalAttrValue = valueRepository.findByAttributeAndValue(attr, value)
-                .orElseGet(() -> {
-                    AttributeValue newValue = new AttributeValue();
-                    newValue.setAttribute(attr);
-                    newValue.setValue(value);
-                    newValue.setMetadata(metadata);
-                    return valueRepository.save(newValue);
-                });
-
-        // Update metadata if it changed (mostly for color hex)
-        if (metadata != null && !metadata.equals(finalAttrValue.getMetadata())) {
-            finalAttrValue.setMetadata(metadata);
-            valueRepository.save(finalAttrValue);
-        }
+        AttributeValue finalAttrValue = attributeDictionary.resolve(attrName, value, metadata);
 
         // Check if link already exists
         boolean exists = variant.getAttributeValues().stream()
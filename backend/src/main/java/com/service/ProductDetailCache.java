@@ -0,0 +1,137 @@
+package com.service;
+
+import com.event.ProductCatalogChangedEvent;
+import com.payload.response.ProductResponse;
+import com.util.InvalidationVersions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * ProductDetailCache
+ * ==================
+ *
+ * Read-through cache of ready-to-serialize {@link ProductResponse}s for the
+ * product detail page. Bounded by entry count (least recently used goes
+ * first) and by a TTL, and invalidated per product once a
+ * {@link ProductCatalogChangedEvent} commits.
+ *
+ * Metrics (see /actuator/metrics): product.detail.cache.requests{result=hit|miss},
+ * product.detail.cache.evictions and product.detail.cache.size.
+ */
+@Service
+@Slf4j
+public class ProductDetailCache {
+
+    private record CachedProduct(ProductResponse response, long expiresAt) {
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Access-ordered so the eldest entry is the least recently read one
+    private final LinkedHashMap<Long, CachedProduct> entries;
+
+    // A load that overlapped an invalidation of its product is not cached
+    private final InvalidationVersions<Long> versions = new InvalidationVersions<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ProductDetailCache(MeterRegistry meterRegistry,
+            @Value("${app.cache.product-detail.max-entries:2000}") int maxEntries,
+            @Value("${app.cache.product-detail.ttl-seconds:300}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedProduct> eldest) {
+                if (size() > ProductDetailCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("product.detail.cache.requests").tag("result", "hit")
+                .description("Product detail lookups served from the cache").register(meterRegistry);
+        this.misses = Counter.builder("product.detail.cache.requests").tag("result", "miss")
+                .description("Product detail lookups that went to the database").register(meterRegistry);
+        this.evictions = Counter.builder("product.detail.cache.evictions")
+                .description("Entries dropped because the cache was full").register(meterRegistry);
+        Gauge.builder("product.detail.cache.size", this, ProductDetailCache::size)
+                .description("Product details currently cached").register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached response for the product, calling the loader on a miss
+     * or an expired entry. Exceptions from the loader (e.g. product not found)
+     * propagate and nothing is cached.
+     */
+    public ProductResponse get(Long modelNo, Function<Long, ProductResponse> loader) {
+        long now = System.currentTimeMillis();
+        long loadStart;
+        synchronized (entries) {
+            CachedProduct cached = entries.get(modelNo);
+            if (cached != null && cached.expiresAt() > now) {
+                hits.increment();
+                return cached.response();
+            }
+            loadStart = versions.beginLoad();
+        }
+
+        misses.increment();
+        try {
+            ProductResponse response = loader.apply(modelNo);
+            synchronized (entries) {
+                if (versions.isCurrent(modelNo, loadStart)) {
+                    entries.put(modelNo, new CachedProduct(response, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+            return response;
+        } finally {
+            synchronized (entries) {
+                versions.endLoad();
+            }
+        }
+    }
+
+    public void invalidate(Long modelNo) {
+        synchronized (entries) {
+            versions.invalidate(modelNo);
+            entries.remove(modelNo);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            versions.invalidateAll();
+            entries.clear();
+        }
+        log.info("Product detail cache cleared");
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.getModelNo() != null) {
+            invalidate(event.getModelNo());
+        }
+    }
+}
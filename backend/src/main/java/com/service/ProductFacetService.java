@@ -0,0 +1,410 @@
+package com.service;
+
+import com.entity.AttributeValue;
+import com.entity.Product;
+import com.entity.ProductVariant;
+import com.entity.VariantAttributeValue;
+import com.event.ProductCatalogChangedEvent;
+import com.payload.response.FacetedProductResponse;
+import com.payload.response.ProductResponse;
+import com.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * ProductFacetService
+ * ===================
+ *
+ * Faceted catalog browsing backed by in-memory bitsets.
+ *
+ * Every product gets a dense ordinal, and every facet value (category,
+ * subCategory, productGroup, brand, color, size, price bucket and any other
+ * variant attribute) keeps a {@link BitSet} of the ordinals that have it.
+ * A query is a handful of AND/OR operations over those bitsets, so filtering
+ * and counting never scan the catalog; only the requested page of products is
+ * loaded from the database. The index is kept current from
+ * {@link ProductCatalogChangedEvent}s and compacted by a nightly rebuild;
+ * changes indexed while a rebuild scans are replayed onto its result.
+ */
+@Service
+@Slf4j
+public class ProductFacetService {
+
+    public static final String CATEGORY = "category";
+    public static final String SUB_CATEGORY = "subCategory";
+    public static final String PRODUCT_GROUP = "productGroup";
+    public static final String BRAND = "brand";
+    public static final String COLOR = "color";
+    public static final String SIZE = "size";
+    public static final String PRICE = "price";
+
+    // Exclusive upper bounds of the price buckets; the last bucket is open-ended
+    private static final int[] PRICE_BUCKET_BOUNDS = { 500, 1000, 2000, 5000 };
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // facet -> value -> ordinals of the products having that value
+    private Map<String, Map<String, BitSet>> facetIndex = new TreeMap<>();
+    // Ordinals are handed out in modelNo order, so walking bits backwards is newest first
+    private List<Long> modelNoByOrdinal = new ArrayList<>();
+    private Map<Long, Integer> ordinalByModelNo = new HashMap<>();
+    // Values each ordinal is currently indexed under, needed to unindex it
+    private Map<Integer, Map<String, Set<String>>> valuesByOrdinal = new HashMap<>();
+    private BitSet live = new BitSet();
+
+    // While a rebuild scans: modelNo -> values it was indexed with since the scan started, or null once
+    // removed. Replayed onto the fresh index before the swap, so changes that raced the scan are kept
+    private Map<Long, Map<String, Set<String>>> changedDuringRebuild;
+
+    /**
+     * Builds the index from scratch. Also runs nightly to reclaim ordinals of
+     * deleted products.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 30 3 * * ?")
+    @Transactional(readOnly = true)
+    public synchronized void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<String, Map<String, BitSet>> freshIndex = new TreeMap<>();
+        List<Long> freshModelNos = new ArrayList<>();
+        Map<Long, Integer> freshOrdinals = new HashMap<>();
+        Map<Integer, Map<String, Set<String>>> freshValues = new HashMap<>();
+        BitSet freshLive = new BitSet();
+
+        try {
+            Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("modelNo"));
+            Page<Product> batch;
+            do {
+                batch = productRepository.findAll(pageable);
+                for (Product product : batch) {
+                    int ordinal = freshModelNos.size();
+                    freshModelNos.add(product.getModelNo());
+                    freshOrdinals.put(product.getModelNo(), ordinal);
+                    Map<String, Set<String>> values = extractFacetValues(product);
+                    freshValues.put(ordinal, values);
+                    setBits(freshIndex, ordinal, values);
+                    freshLive.set(ordinal);
+                }
+                entityManager.clear();
+                pageable = batch.nextPageable();
+            } while (batch.hasNext());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Map<Long, Map<String, Set<String>>> replayed;
+        lock.writeLock().lock();
+        try {
+            facetIndex = freshIndex;
+            modelNoByOrdinal = freshModelNos;
+            ordinalByModelNo = freshOrdinals;
+            valuesByOrdinal = freshValues;
+            live = freshLive;
+            replayed = changedDuringRebuild;
+            changedDuringRebuild = null;
+            replayed.forEach((modelNo, values) -> {
+                if (values != null) {
+                    indexLocked(modelNo, values);
+                } else {
+                    removeLocked(modelNo);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product facet index built: {} products, {} facets, {} concurrent changes replayed in {} ms",
+                freshModelNos.size(), freshIndex.size(), replayed.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.getModelNo() == null || event.getChangeType().isDetailOnly()) {
+            return;
+        }
+        if (event.getChangeType() == ProductCatalogChangedEvent.ChangeType.DELETED) {
+            remove(event.getModelNo());
+            return;
+        }
+        productRepository.findById(event.getModelNo())
+                .ifPresentOrElse(this::index, () -> remove(event.getModelNo()));
+    }
+
+    public void index(Product product) {
+        if (product == null || product.getModelNo() == null) {
+            return;
+        }
+        Map<String, Set<String>> values = extractFacetValues(product);
+        lock.writeLock().lock();
+        try {
+            indexLocked(product.getModelNo(), values);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(product.getModelNo(), values);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long modelNo) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(modelNo);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(modelNo, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of products matching the filters (newest first) together
+     * with the facet counts. Values within a facet are OR-ed, facets are AND-ed.
+     * Counts for a facet ignore that facet's own filter, so the other values of
+     * a multi-select facet stay visible.
+     */
+    @Transactional(readOnly = true)
+    public FacetedProductResponse search(Map<String, Set<String>> filters, Pageable pageable) {
+        List<Long> pageModelNos = new ArrayList<>();
+        Map<String, Map<String, Integer>> facetCounts = new LinkedHashMap<>();
+        int total;
+
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> filterMatches = new HashMap<>();
+            filters.forEach((facet, selected) -> {
+                BitSet match = new BitSet();
+                Map<String, BitSet> valueIndex = facetIndex.getOrDefault(facet, Map.of());
+                for (String value : selected) {
+                    BitSet bits = valueIndex.get(value);
+                    if (bits != null) {
+                        match.or(bits);
+                    }
+                }
+                filterMatches.put(facet, match);
+            });
+
+            BitSet result = intersect(filterMatches, null);
+            total = result.cardinality();
+
+            BitSet scratch = new BitSet();
+            for (Map.Entry<String, Map<String, BitSet>> facet : facetIndex.entrySet()) {
+                BitSet base = intersect(filterMatches, facet.getKey());
+                Map<String, Integer> counts = new HashMap<>();
+                for (Map.Entry<String, BitSet> value : facet.getValue().entrySet()) {
+                    scratch.clear();
+                    scratch.or(value.getValue());
+                    scratch.and(base);
+                    int count = scratch.cardinality();
+                    if (count > 0) {
+                        counts.put(value.getKey(), count);
+                    }
+                }
+                facetCounts.put(facet.getKey(), sortByCount(counts));
+            }
+
+            long skip = pageable.getOffset();
+            for (int i = result.previousSetBit(result.length() - 1); i >= 0
+                    && pageModelNos.size() < pageable.getPageSize(); i = result.previousSetBit(i - 1)) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                pageModelNos.add(modelNoByOrdinal.get(i));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(pageModelNos).stream()
+                .collect(Collectors.toMap(Product::getModelNo, Function.identity(), (a, b) -> a));
+        List<ProductResponse> content = productService.toListResponses(pageModelNos.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList());
+
+        int totalPages = (total + pageable.getPageSize() - 1) / pageable.getPageSize();
+        return new FacetedProductResponse(content, pageable.getPageNumber(), pageable.getPageSize(), total,
+                totalPages, facetCounts);
+    }
+
+    // Helper methods
+
+    // Callers hold the write lock
+    private void indexLocked(Long modelNo, Map<String, Set<String>> values) {
+        Integer ordinal = ordinalByModelNo.get(modelNo);
+        if (ordinal == null) {
+            ordinal = modelNoByOrdinal.size();
+            modelNoByOrdinal.add(modelNo);
+            ordinalByModelNo.put(modelNo, ordinal);
+        } else {
+            clearBits(ordinal);
+        }
+        valuesByOrdinal.put(ordinal, values);
+        setBits(facetIndex, ordinal, values);
+        live.set(ordinal);
+    }
+
+    private void removeLocked(Long modelNo) {
+        Integer ordinal = ordinalByModelNo.remove(modelNo);
+        if (ordinal != null) {
+            clearBits(ordinal);
+            valuesByOrdinal.remove(ordinal);
+            live.clear(ordinal);
+            modelNoByOrdinal.set(ordinal, null);
+        }
+    }
+
+    private BitSet intersect(Map<String, BitSet> filterMatches, String excludedFacet) {
+        BitSet result = (BitSet) live.clone();
+        filterMatches.forEach((facet, match) -> {
+            if (!facet.equals(excludedFacet)) {
+                result.and(match);
+            }
+        });
+        return result;
+    }
+
+    private void setBits(Map<String, Map<String, BitSet>> index, int ordinal, Map<String, Set<String>> values) {
+        values.forEach((facet, facetValues) -> {
+            Map<String, BitSet> valueIndex = index.computeIfAbsent(facet, f -> new HashMap<>());
+            for (String value : facetValues) {
+                valueIndex.computeIfAbsent(value, v -> new BitSet()).set(ordinal);
+            }
+        });
+    }
+
+    private void clearBits(int ordinal) {
+        Map<String, Set<String>> previous = valuesByOrdinal.get(ordinal);
+        if (previous == null) {
+            return;
+        }
+        previous.forEach((facet, facetValues) -> {
+            Map<String, BitSet> valueIndex = facetIndex.get(facet);
+            if (valueIndex == null) {
+                return;
+            }
+            for (String value : facetValues) {
+                BitSet bits = valueIndex.get(value);
+                if (bits != null) {
+                    bits.clear(ordinal);
+                    if (bits.isEmpty()) {
+                        valueIndex.remove(value);
+                    }
+                }
+            }
+            if (valueIndex.isEmpty()) {
+                facetIndex.remove(facet);
+            }
+        });
+    }
+
+    private Map<String, Set<String>> extractFacetValues(Product product) {
+        Map<String, Set<String>> values = new HashMap<>();
+        if (product.getCategory() != null) {
+            addValue(values, CATEGORY, product.getCategory().name());
+        }
+        if (product.getSubCategory() != null) {
+            addValue(values, SUB_CATEGORY, product.getSubCategory().name());
+        }
+        if (product.getProductGroup() != null) {
+            addValue(values, PRODUCT_GROUP, product.getProductGroup().name());
+        }
+        addValue(values, BRAND, product.getBrandName());
+
+        for (ProductVariant variant : product.getVariants()) {
+            // Legacy columns first, then the attribute links (Color, Size and anything else)
+            addValue(values, COLOR, variant.getColor());
+            addValue(values, SIZE, variant.getSize());
+            addValue(values, PRICE, priceBucket(variant.getPrice()));
+            for (VariantAttributeValue link : variant.getAttributeValues()) {
+                AttributeValue attributeValue = link.getAttributeValue();
+                if (attributeValue == null || attributeValue.getAttribute() == null) {
+                    continue;
+                }
+                addValue(values, attributeValue.getAttribute().getName().toLowerCase(Locale.ROOT),
+                        attributeValue.getValue());
+            }
+        }
+        return values;
+    }
+
+    private void addValue(Map<String, Set<String>> values, String facet, String value) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        values.computeIfAbsent(facet, f -> new HashSet<>()).add(value.trim());
+    }
+
+    private static String priceBucket(double price) {
+        int lower = 0;
+        for (int bound : PRICE_BUCKET_BOUNDS) {
+            if (price < bound) {
+                return lower + "-" + (bound - 1);
+            }
+            lower = bound;
+        }
+        return lower + "+";
+    }
+
+    private static Map<String, Integer> sortByCount(Map<String, Integer> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<String, Integer>comparingByKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+}
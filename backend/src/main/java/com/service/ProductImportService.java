@@ -0,0 +1,767 @@
+package com.service;
+
+import com.entity.Category;
+import com.entity.ProductGroup;
+import com.entity.SubCategory;
+import com.event.ProductCatalogChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payload.request.ProductImportRow;
+import com.payload.response.ImportJobStatus;
+import com.util.CsvReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ProductImportService
+ * ====================
+ *
+ * Bulk catalog onboarding from a CSV or NDJSON file with one line per variant
+ * (lines sharing a product name form one product).
+ *
+ * The upload is spooled to a temp file and processed in the background: a
+ * parser thread turns lines into rows and hands them over in batches through
+ * a small bounded queue (it blocks when the writer falls behind), and the job
+ * thread writes each batch in one transaction with JDBC batch inserts for
+ * products, about items, variants, attribute links and image references.
+ * Attribute values are resolved through the shared AttributeDictionary. Heap
+ * use is therefore bounded by a few batches, not by the file size.
+ *
+ * A failed batch is rolled back and its rows reported; the job carries on
+ * with the next batch. Progress is polled through {@link #getStatus}.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * Who is importing: the seller (null for admins) and the categories the
+     * seller may list in (empty = all).
+     */
+    public record ImportContext(Long userId, Long moderatorId, Set<Category> allowedCategories) {
+    }
+
+    private static final int BATCH_ROWS = 500;
+    private static final int QUEUED_BATCHES = 4;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    // Past this many products a job stops reindexing one by one and rebuilds the indexes once at the end
+    private static final int PER_PRODUCT_EVENT_LIMIT = 1000;
+
+    private static final String PLACEHOLDER_IMAGE = "/assets/imagenotavailableplaceholder.png";
+
+    private static final String INSERT_PRODUCT_SQL = "INSERT INTO product (name, brand_name, category, sub_category, "
+            + "product_group, description, manufacturer, packer, importer, item_weight, item_dimensions, "
+            + "net_quantity, generic_name, is_single_brand, is_returnable, is_replaceable, price, quantity, "
+            + "moderator_id, tenant_id, is_master, average_rating, review_count, low_stock_threshold) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 5)";
+    private static final String INSERT_ABOUT_SQL = "INSERT INTO product_about (product_id, about_item) VALUES (?, ?)";
+    private static final String INSERT_VARIANT_SQL = "INSERT INTO product_variant (model_no, style_code, sku, price, "
+            + "quantity, color, color_hex, size) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_VARIANT_ATTRIBUTE_SQL = "INSERT INTO variant_attribute_values "
+            + "(variant_id, attribute_value_id) VALUES (?, ?)";
+    private static final String INSERT_IMAGE_SQL = "INSERT INTO product_image (variant_id, image_url, is_primary, "
+            + "image_type) VALUES (?, ?, ?, NULL)";
+
+    // Rows of one batch, empty list = end of input
+    private static final List<ProductImportRow> END_OF_INPUT = List.of();
+
+    /**
+     * What one committed batch did; touched maps modelNo -> newly created.
+     */
+    private record BatchResult(Map<Long, Boolean> touched, long imported, long skipped,
+            List<ProductImportRow> foreignRows) {
+    }
+
+    /**
+     * Mutable progress of a running job; snapshots go out as ImportJobStatus.
+     */
+    private static final class ImportJob {
+        final String id = UUID.randomUUID().toString();
+        final String fileName;
+        final Format format;
+        final ImportContext context;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        volatile String status = "QUEUED";
+        volatile String message;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong rowsImported = new AtomicLong();
+        final AtomicLong rowsSkipped = new AtomicLong();
+        final AtomicLong rowsFailed = new AtomicLong();
+        final AtomicLong productsCreated = new AtomicLong();
+        final AtomicLong variantsCreated = new AtomicLong();
+        final List<String> errors = new ArrayList<>();
+        long productEvents;
+        boolean rebuildIndexes;
+
+        ImportJob(String fileName, Format format, ImportContext context) {
+            this.fileName = fileName;
+            this.format = format;
+            this.context = context;
+        }
+
+        void fail(ProductImportRow row, String reason) {
+            rowsFailed.incrementAndGet();
+            error(row.getLine(), reason);
+        }
+
+        void error(long line, String reason) {
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("Line " + line + ": " + reason);
+                }
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AttributeDictionary attributeDictionary;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductFacetService productFacetService;
+
+    @Autowired
+    private VariantIndex variantIndex;
+
+    @Value("${app.import.max-file-mb:200}")
+    private long maxFileMb;
+
+    private final TransactionTemplate batchTransaction;
+
+    private final ThreadPoolExecutor jobExecutor;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ProductImportService(PlatformTransactionManager transactionManager,
+            @Value("${app.import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+            @Value("${app.import.max-queued-jobs:10}") int maxQueuedJobs) {
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.jobExecutor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs), runnable -> {
+                    Thread thread = new Thread(runnable, "product-import");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Spools the upload and queues the import. Returns the job status right
+     * away; the work happens in the background.
+     */
+    public ImportJobStatus startImport(MultipartFile file, Format format, ImportContext context) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("Import file is empty");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return startImport(in, file.getOriginalFilename(), format, context);
+        }
+    }
+
+    /**
+     * Same for a file sent as the raw request body, which is not subject to
+     * the multipart limits; app.import.max-file-mb caps it instead.
+     */
+    public ImportJobStatus startImport(InputStream in, String fileName, Format format, ImportContext context)
+            throws IOException {
+        Format resolved = format != null ? format : formatOf(fileName);
+        Path spooled = Files.createTempFile("product-import-", resolved == Format.CSV ? ".csv" : ".ndjson");
+        try {
+            if (spool(in, spooled) == 0) {
+                throw new RuntimeException("Import file is empty");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        ImportJob job = new ImportJob(fileName, resolved, context);
+        jobs.put(job.id, job);
+        try {
+            jobExecutor.execute(() -> run(job, spooled));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(spooled);
+            throw new RuntimeException("Too many imports are queued, try again later");
+        }
+        return toStatus(job);
+    }
+
+    /**
+     * Returns the job's progress, or null if it is unknown or belongs to
+     * another user (admins see every job).
+     */
+    public ImportJobStatus getStatus(String jobId, Long userId, boolean admin) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null || (!admin && !job.context.userId().equals(userId))) {
+            return null;
+        }
+        return toStatus(job);
+    }
+
+    public List<ImportJobStatus> getJobs(Long userId, boolean admin) {
+        return jobs.values().stream()
+                .filter(job -> admin || job.context.userId().equals(userId))
+                .sorted((a, b) -> b.createdAt.compareTo(a.createdAt))
+                .map(this::toStatus)
+                .toList();
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void forgetOldJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    // Pipeline
+
+    private void run(ImportJob job, Path file) {
+        job.status = "RUNNING";
+        job.startedAt = LocalDateTime.now();
+        BlockingQueue<List<ProductImportRow>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        Thread parser = new Thread(() -> parse(job, file, queue), "product-import-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        try {
+            List<ProductImportRow> batch;
+            while ((batch = queue.take()) != END_OF_INPUT) {
+                writeBatch(job, batch);
+            }
+            if (job.rebuildIndexes) {
+                productSearchService.rebuildIndex();
+                productFacetService.rebuildIndex();
+                // Existing products past the event limit only got STOCK_UPDATED, which keeps their variant entries
+                variantIndex.invalidateAll();
+            }
+            if (!"FAILED".equals(job.status)) {
+                job.status = "COMPLETED";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.status = "FAILED";
+            job.message = "Import was interrupted";
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.message = e.getMessage();
+            log.error("Product import {} failed: {}", job.id, e.getMessage());
+        } finally {
+            parser.interrupt();
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete import file {}: {}", file, e.getMessage());
+            }
+            log.info("Product import {} {}: {} rows read, {} imported, {} skipped, {} failed", job.id, job.status,
+                    job.rowsRead.get(), job.rowsImported.get(), job.rowsSkipped.get(), job.rowsFailed.get());
+        }
+    }
+
+    /**
+     * Producer side: reads the file and blocks on the queue whenever the
+     * writer is QUEUED_BATCHES behind. Always ends with END_OF_INPUT.
+     */
+    private void parse(ImportJob job, Path file, BlockingQueue<List<ProductImportRow>> queue) {
+        List<ProductImportRow> batch = new ArrayList<>(BATCH_ROWS);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (job.format == Format.CSV) {
+                CsvReader csv = new CsvReader(reader);
+                List<String> header = csv.readRecord();
+                if (header == null) {
+                    return;
+                }
+                List<String> columns = header.stream().map(ProductImportService::normalizeColumn).toList();
+                List<String> record;
+                long line = csv.getLine();
+                while ((record = csv.readRecord()) != null) {
+                    job.rowsRead.incrementAndGet();
+                    try {
+                        ProductImportRow row = fromCsv(columns, record);
+                        row.setLine(line);
+                        batch = offer(batch, row, queue);
+                    } catch (RuntimeException e) {
+                        job.rowsFailed.incrementAndGet();
+                        job.error(line, e.getMessage());
+                    }
+                    line = csv.getLine();
+                }
+            } else {
+                String text;
+                long line = 0;
+                while ((text = reader.readLine()) != null) {
+                    line++;
+                    if (text.isBlank()) {
+                        continue;
+                    }
+                    job.rowsRead.incrementAndGet();
+                    try {
+                        ProductImportRow row = objectMapper.readValue(text, ProductImportRow.class);
+                        row.setLine(line);
+                        batch = offer(batch, row, queue);
+                    } catch (JsonProcessingException e) {
+                        job.rowsFailed.incrementAndGet();
+                        job.error(line, "Invalid JSON: " + e.getOriginalMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.message = "Could not read file: " + e.getMessage();
+        } finally {
+            try {
+                if (!batch.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                    queue.put(batch);
+                }
+                if (!Thread.currentThread().isInterrupted()) {
+                    queue.put(END_OF_INPUT);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private List<ProductImportRow> offer(List<ProductImportRow> batch, ProductImportRow row,
+            BlockingQueue<List<ProductImportRow>> queue) throws InterruptedException {
+        batch.add(row);
+        if (batch.size() < BATCH_ROWS) {
+            return batch;
+        }
+        queue.put(batch);
+        return new ArrayList<>(BATCH_ROWS);
+    }
+
+    /**
+     * Consumer side: validates a batch and writes it in one transaction.
+     */
+    private void writeBatch(ImportJob job, List<ProductImportRow> batch) {
+        List<ProductImportRow> valid = new ArrayList<>();
+        for (ProductImportRow row : batch) {
+            String problem = validate(row, job.context);
+            if (problem != null) {
+                job.fail(row, problem);
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        BatchResult result;
+        try {
+            result = batchTransaction.execute(status -> insertBatch(job, valid));
+        } catch (Exception e) {
+            for (ProductImportRow row : valid) {
+                job.fail(row, "Batch rolled back: " + e.getMessage());
+            }
+            log.warn("Product import {} batch at line {} failed: {}", job.id, valid.get(0).getLine(),
+                    e.getMessage());
+            return;
+        }
+
+        for (ProductImportRow row : result.foreignRows()) {
+            job.fail(row, "Unauthorized: You do not own product '" + row.getName() + "'");
+        }
+        job.rowsImported.addAndGet(result.imported());
+        job.rowsSkipped.addAndGet(result.skipped());
+        job.variantsCreated.addAndGet(result.imported());
+        job.productsCreated.addAndGet(result.touched().values().stream().filter(Boolean::booleanValue).count());
+        publishChanges(job, result.touched());
+    }
+
+    /**
+     * Writes one batch. Runs in the batch transaction; nothing is counted
+     * until it has committed.
+     */
+    private BatchResult insertBatch(ImportJob job, List<ProductImportRow> rows) {
+        // Names are unique case-insensitively in MySQL, so group and match them the same way
+        Map<String, List<ProductImportRow>> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (ProductImportRow row : rows) {
+            byName.computeIfAbsent(row.getName().trim(), name -> new ArrayList<>()).add(row);
+        }
+
+        // 1. Products: reuse existing ones (if this seller may add to them), insert the rest
+        Map<String, Long> productIds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<Long, Boolean> touched = new LinkedHashMap<>();
+        List<ProductImportRow> failed = new ArrayList<>();
+        namedJdbcTemplate.query("SELECT model_no, name, moderator_id FROM product WHERE name IN (:names)",
+                new MapSqlParameterSource("names", byName.keySet()), rs -> {
+                    Long owner = (Long) rs.getObject(3);
+                    Long seller = job.context.moderatorId();
+                    String name = rs.getString(2);
+                    List<ProductImportRow> group = byName.get(name);
+                    if (group == null) {
+                        return;
+                    }
+                    // A seller may only add to its own products, not to another seller's or unowned ones
+                    if (seller != null && !seller.equals(owner)) {
+                        failed.addAll(group);
+                        byName.remove(name);
+                        return;
+                    }
+                    productIds.put(name, rs.getLong(1));
+                    touched.put(rs.getLong(1), false);
+                });
+
+        List<ProductImportRow> newProducts = byName.entrySet().stream()
+                .filter(e -> !productIds.containsKey(e.getKey()))
+                .map(e -> e.getValue().get(0))
+                .toList();
+        if (!newProducts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PRODUCT_SQL, newProducts, newProducts.size(),
+                    (ps, row) -> bindProduct(ps, row, job.context.moderatorId()));
+            List<String> newNames = newProducts.stream().map(r -> r.getName().trim()).toList();
+            namedJdbcTemplate.query("SELECT model_no, name FROM product WHERE name IN (:names)",
+                    new MapSqlParameterSource("names", newNames), rs -> {
+                        productIds.put(rs.getString(2), rs.getLong(1));
+                        touched.put(rs.getLong(1), true);
+                    });
+
+            List<Object[]> about = new ArrayList<>();
+            for (ProductImportRow row : newProducts) {
+                if (row.getAboutItems() != null) {
+                    Long productId = productIds.get(row.getName().trim());
+                    row.getAboutItems().stream().filter(item -> item != null && !item.isBlank())
+                            .forEach(item -> about.add(new Object[] { productId, item.trim() }));
+                }
+            }
+            if (!about.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ABOUT_SQL, about);
+            }
+        }
+
+        // 2. Variants: skip (product, color, size) combinations that already exist
+        Set<String> existingVariants = new HashSet<>(variantKeys(productIds.values()).keySet());
+        List<ProductImportRow> newVariants = new ArrayList<>();
+        long skipped = 0;
+        for (Map.Entry<String, List<ProductImportRow>> group : byName.entrySet()) {
+            Long productId = productIds.get(group.getKey());
+            for (ProductImportRow row : group.getValue()) {
+                if (existingVariants.add(variantKey(productId, color(row), size(row)))) {
+                    newVariants.add(row);
+                } else {
+                    skipped++;
+                }
+            }
+        }
+
+        if (!newVariants.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_VARIANT_SQL, newVariants, newVariants.size(), (ps, row) -> {
+                ps.setLong(1, productIds.get(row.getName().trim()));
+                ps.setString(2, row.getStyleCode());
+                ps.setString(3, row.getSku());
+                ps.setDouble(4, row.getPrice());
+                ps.setInt(5, row.getQuantity() != null ? row.getQuantity() : 0);
+                ps.setString(6, color(row));
+                ps.setString(7, colorHex(row));
+                ps.setString(8, size(row));
+            });
+
+            Map<String, Long> variantIds = variantKeys(newVariants.stream()
+                    .map(row -> productIds.get(row.getName().trim())).distinct().toList());
+            List<Object[]> links = new ArrayList<>();
+            List<Object[]> images = new ArrayList<>();
+            for (ProductImportRow row : newVariants) {
+                Long variantId = variantIds.get(variantKey(productIds.get(row.getName().trim()), color(row),
+                        size(row)));
+                links.add(new Object[] { variantId,
+                        attributeDictionary.resolve("Color", color(row), colorHex(row)).getId() });
+                links.add(new Object[] { variantId, attributeDictionary.resolve("Size", size(row), null).getId() });
+
+                List<String> urls = row.getImageUrls() == null ? List.of()
+                        : row.getImageUrls().stream().filter(url -> url != null && !url.isBlank()).toList();
+                if (urls.isEmpty()) {
+                    images.add(new Object[] { variantId, PLACEHOLDER_IMAGE, true });
+                }
+                for (int i = 0; i < urls.size(); i++) {
+                    images.add(new Object[] { variantId, urls.get(i).trim(), i == 0 });
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_VARIANT_ATTRIBUTE_SQL, links);
+            jdbcTemplate.batchUpdate(INSERT_IMAGE_SQL, images);
+        }
+
+        return new BatchResult(touched, newVariants.size(), skipped, failed);
+    }
+
+    private void publishChanges(ImportJob job, Map<Long, Boolean> touched) {
+        touched.forEach((modelNo, created) -> {
+            if (job.productEvents++ < PER_PRODUCT_EVENT_LIMIT) {
+                eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, modelNo,
+                        created ? ProductCatalogChangedEvent.ChangeType.CREATED
+                                : ProductCatalogChangedEvent.ChangeType.UPDATED));
+                return;
+            }
+            // One rebuild at the end is far cheaper than thousands of single-product reloads;
+            // detail-only events still drop cached product pages
+            job.rebuildIndexes = true;
+            if (!created) {
+                eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, modelNo,
+                        ProductCatalogChangedEvent.ChangeType.STOCK_UPDATED));
+            }
+        });
+    }
+
+    // Helper methods
+
+    private ImportJobStatus toStatus(ImportJob job) {
+        ImportJobStatus status = new ImportJobStatus();
+        status.setJobId(job.id);
+        status.setFileName(job.fileName);
+        status.setFormat(job.format.name());
+        status.setStatus(job.status);
+        status.setRowsRead(job.rowsRead.get());
+        status.setRowsImported(job.rowsImported.get());
+        status.setRowsSkipped(job.rowsSkipped.get());
+        status.setRowsFailed(job.rowsFailed.get());
+        status.setProductsCreated(job.productsCreated.get());
+        status.setVariantsCreated(job.variantsCreated.get());
+        synchronized (job.errors) {
+            status.setErrors(List.copyOf(job.errors));
+        }
+        status.setMessage(job.message);
+        status.setCreatedAt(job.createdAt);
+        status.setStartedAt(job.startedAt);
+        status.setFinishedAt(job.finishedAt);
+        return status;
+    }
+
+    private String validate(ProductImportRow row, ImportContext context) {
+        if (row.getName() == null || row.getName().isBlank()) {
+            return "name is required";
+        }
+        if (row.getName().trim().length() > 255) {
+            return "name is longer than 255 characters";
+        }
+        if (row.getPrice() == null || row.getPrice() < 0) {
+            return "price is required and cannot be negative";
+        }
+        if (row.getQuantity() != null && row.getQuantity() < 0) {
+            return "quantity cannot be negative";
+        }
+        Category category = enumValue(Category.class, row.getCategory());
+        if (category == null) {
+            return "invalid category: " + row.getCategory();
+        }
+        if (!context.allowedCategories().isEmpty() && !context.allowedCategories().contains(category)) {
+            return "not authorized for category: " + category;
+        }
+        return null;
+    }
+
+    private void bindProduct(java.sql.PreparedStatement ps, ProductImportRow row, Long moderatorId)
+            throws java.sql.SQLException {
+        ps.setString(1, row.getName().trim());
+        ps.setString(2, row.getBrandName());
+        ps.setString(3, enumValue(Category.class, row.getCategory()).name());
+        SubCategory subCategory = enumValue(SubCategory.class, row.getSubCategory());
+        ps.setString(4, subCategory != null ? subCategory.name() : null);
+        ProductGroup productGroup = enumValue(ProductGroup.class, row.getProductGroup());
+        ps.setString(5, productGroup != null ? productGroup.name() : null);
+        ps.setString(6, row.getDescription());
+        ps.setString(7, row.getManufacturer());
+        ps.setString(8, row.getPacker());
+        ps.setString(9, row.getImporter());
+        ps.setString(10, row.getItemWeight());
+        ps.setString(11, row.getItemDimensions());
+        ps.setString(12, row.getNetQuantity());
+        ps.setString(13, row.getGenericName());
+        ps.setBoolean(14, Boolean.TRUE.equals(row.getIsSingleBrand()));
+        ps.setBoolean(15, !Boolean.FALSE.equals(row.getIsReturnable()));
+        ps.setBoolean(16, !Boolean.FALSE.equals(row.getIsReplaceable()));
+        ps.setDouble(17, row.getPrice());
+        ps.setInt(18, row.getQuantity() != null ? row.getQuantity() : 0);
+        ps.setObject(19, moderatorId);
+        ps.setObject(20, moderatorId);
+        ps.setBoolean(21, moderatorId == null);
+    }
+
+    // "productId|color|size" -> variant id
+    private Map<String, Long> variantKeys(Collection<Long> productIds) {
+        Map<String, Long> keys = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return keys;
+        }
+        namedJdbcTemplate.query("SELECT id, model_no, color, size FROM product_variant WHERE model_no IN (:ids)",
+                new MapSqlParameterSource("ids", productIds),
+                rs -> {
+                    keys.put(variantKey(rs.getLong(2), rs.getString(3), rs.getString(4)), rs.getLong(1));
+                });
+        return keys;
+    }
+
+    private static String variantKey(Long productId, String color, String size) {
+        return productId + "|" + color + "|" + size;
+    }
+
+    // Same defaults as the single-product form
+    private static String color(ProductImportRow row) {
+        return row.getColor() != null && !row.getColor().isBlank() ? row.getColor().trim() : "Default";
+    }
+
+    private static String colorHex(ProductImportRow row) {
+        String hex = row.getColorHex() != null ? row.getColorHex().trim() : "";
+        return !hex.isEmpty() && hex.length() <= 20 ? hex : "#000000";
+    }
+
+    private static String size(ProductImportRow row) {
+        return row.getSize() != null && !row.getSize().isBlank() ? row.getSize().trim() : "Standard";
+    }
+
+    private static <T extends Enum<T>> T enumValue(Class<T> type, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT).replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Copies the upload to disk, refusing it once it is over app.import.max-file-mb; returns the byte count
+    private long spool(InputStream in, Path target) throws IOException {
+        long limit = maxFileMb * 1024 * 1024;
+        long total = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > limit) {
+                    throw new RuntimeException("Import file is larger than " + maxFileMb + " MB");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return total;
+    }
+
+    private static Format formatOf(String fileName) {
+        String lower = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        return lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json") ? Format.NDJSON
+                : Format.CSV;
+    }
+
+    private static String normalizeColumn(String header) {
+        return header.replace("﻿", "").replaceAll("[^A-Za-z0-9]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static ProductImportRow fromCsv(List<String> columns, List<String> record) {
+        ProductImportRow row = new ProductImportRow();
+        for (int i = 0; i < columns.size() && i < record.size(); i++) {
+            String value = record.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (columns.get(i)) {
+                case "name" -> row.setName(value);
+                case "brand", "brandname" -> row.setBrandName(value);
+                case "category" -> row.setCategory(value);
+                case "subcategory" -> row.setSubCategory(value);
+                case "productgroup" -> row.setProductGroup(value);
+                case "description" -> row.setDescription(value);
+                case "manufacturer" -> row.setManufacturer(value);
+                case "packer" -> row.setPacker(value);
+                case "importer" -> row.setImporter(value);
+                case "itemweight" -> row.setItemWeight(value);
+                case "itemdimensions" -> row.setItemDimensions(value);
+                case "netquantity" -> row.setNetQuantity(value);
+                case "genericname" -> row.setGenericName(value);
+                case "singlebrand", "issinglebrand" -> row.setIsSingleBrand(Boolean.parseBoolean(value));
+                case "returnable", "isreturnable" -> row.setIsReturnable(Boolean.parseBoolean(value));
+                case "replaceable", "isreplaceable" -> row.setIsReplaceable(Boolean.parseBoolean(value));
+                case "aboutitems" -> row.setAboutItems(Arrays.asList(value.split("\\|")));
+                case "price" -> row.setPrice(parseNumber(value, "price").doubleValue());
+                case "quantity", "stock" -> row.setQuantity(parseNumber(value, "quantity").intValue());
+                case "color" -> row.setColor(value);
+                case "colorhex" -> row.setColorHex(value);
+                case "size" -> row.setSize(value);
+                case "stylecode" -> row.setStyleCode(value);
+                case "sku" -> row.setSku(value);
+                case "images", "imageurls" -> row.setImageUrls(Arrays.asList(value.split("\\|")));
+                default -> {
+                    // Unknown columns are ignored
+                }
+            }
+        }
+        return row;
+    }
+
+    private static Number parseNumber(String value, String column) {
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(column + " is not a number: " + value);
+        }
+    }
+}
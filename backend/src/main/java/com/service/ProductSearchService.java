@@ -0,0 +1,442 @@
+package com.service;
+
+import com.entity.Product;
+import com.entity.ProductVariant;
+import com.event.ProductCatalogChangedEvent;
+import com.payload.response.ProductSearchResponse;
+import com.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * ProductSearchService
+ * ====================
+ *
+ * In-memory inverted index over the catalog, used by /api/products/search.
+ *
+ * Indexed fields: name, brandName, genericName, description and aboutItems,
+ * each with its own boost. Ranking is BM25 over the boosted term weights.
+ * Every query term is expanded to its exact term, terms it is a prefix of
+ * (type-ahead) and, when neither exists, terms within one or two edits
+ * (typos). The index is built once at startup and then kept up to date from
+ * {@link ProductCatalogChangedEvent}s, so a query never touches the database.
+ * Changes indexed while a rebuild scans are replayed onto its result.
+ */
+@Service
+@Slf4j
+public class ProductSearchService {
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Field boosts
+    private static final double NAME_BOOST = 3.0;
+    private static final double BRAND_BOOST = 2.0;
+    private static final double GENERIC_NAME_BOOST = 1.5;
+    private static final double DESCRIPTION_BOOST = 1.0;
+    private static final double ABOUT_BOOST = 0.75;
+
+    // Weight of expanded (non-exact) term matches
+    private static final double PREFIX_MATCH_WEIGHT = 0.7;
+    private static final double FUZZY_MATCH_WEIGHT = 0.4;
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_EXPANSIONS = 50;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (modelNo -> boosted term frequency). Sorted so prefixes are a range scan.
+    private final NavigableMap<String, Map<Long, Double>> postings = new TreeMap<>();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    private double totalDocumentLength = 0;
+
+    private record IndexedProduct(ProductSearchResponse summary, Map<String, Double> termWeights, double length) {
+    }
+
+    // While a rebuild scans: modelNo -> document indexed since the scan started, or null once removed.
+    // Replayed onto the fresh index before it is published, so changes that raced the scan are kept
+    private Map<Long, IndexedProduct> changedDuringRebuild;
+
+    /**
+     * Builds the index from the database in fixed-size batches.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        Map<Long, IndexedProduct> fresh = new HashMap<>();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("modelNo"));
+            Page<Product> batch;
+            do {
+                batch = productRepository.findAll(pageable);
+                for (Product product : batch) {
+                    fresh.put(product.getModelNo(), analyze(product));
+                }
+                entityManager.clear();
+                pageable = batch.nextPageable();
+            } while (batch.hasNext());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Map<Long, IndexedProduct> replayed;
+        int documentCount;
+        int termCount;
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalDocumentLength = 0;
+            fresh.forEach(this::addInternal);
+            replayed = changedDuringRebuild;
+            changedDuringRebuild = null;
+            replayed.forEach((modelNo, document) -> {
+                removeInternal(modelNo);
+                if (document != null) {
+                    addInternal(modelNo, document);
+                }
+            });
+            documentCount = documents.size();
+            termCount = postings.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index built: {} products, {} terms, {} concurrent changes replayed in {} ms",
+                documentCount, termCount, replayed.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Re-indexes a single product after the write that changed it has committed.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.getModelNo() == null || event.getChangeType().isDetailOnly()) {
+            return;
+        }
+        if (event.getChangeType() == ProductCatalogChangedEvent.ChangeType.DELETED) {
+            remove(event.getModelNo());
+            return;
+        }
+        productRepository.findById(event.getModelNo())
+                .ifPresentOrElse(this::index, () -> remove(event.getModelNo()));
+    }
+
+    public void index(Product product) {
+        if (product == null || product.getModelNo() == null) {
+            return;
+        }
+        IndexedProduct document = analyze(product);
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getModelNo());
+            addInternal(product.getModelNo(), document);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(product.getModelNo(), document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long modelNo) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(modelNo);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(modelNo, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked, paged search. Only the top (offset + size) hits are ordered, the
+     * rest are just counted.
+     */
+    public Page<ProductSearchResponse> search(String query, Pageable pageable) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return Page.empty(pageable);
+            }
+            double averageLength = totalDocumentLength / documentCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            Map<Long, Integer> matchedTerms = new HashMap<>();
+            LinkedHashSet<String> distinctTerms = new LinkedHashSet<>(queryTerms);
+
+            for (String term : distinctTerms) {
+                // Best score per document for this query term, whichever expansion matched
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Double> expansion : expand(term).entrySet()) {
+                    Map<Long, Double> postingList = postings.get(expansion.getKey());
+                    double idf = Math.log(1 + (documentCount - postingList.size() + 0.5) / (postingList.size() + 0.5));
+                    for (Map.Entry<Long, Double> posting : postingList.entrySet()) {
+                        double tf = posting.getValue();
+                        double length = documents.get(posting.getKey()).length();
+                        double score = expansion.getValue() * idf * (tf * (K1 + 1))
+                                / (tf + K1 * (1 - B + B * length / averageLength));
+                        termScores.merge(posting.getKey(), score, Math::max);
+                    }
+                }
+                termScores.forEach((modelNo, score) -> {
+                    scores.merge(modelNo, score, Double::sum);
+                    matchedTerms.merge(modelNo, 1, Integer::sum);
+                });
+            }
+
+            if (scores.isEmpty()) {
+                return Page.empty(pageable);
+            }
+
+            // Documents matching more of the query rank ahead of partial matches
+            scores.replaceAll((modelNo, score) -> score * matchedTerms.get(modelNo) / distinctTerms.size());
+
+            long offset = pageable.getOffset();
+            if (offset >= scores.size()) {
+                return new PageImpl<>(List.of(), pageable, scores.size());
+            }
+            int limit = (int) Math.min(scores.size(), offset + pageable.getPageSize());
+
+            Comparator<Map.Entry<Long, Double>> byScore = Map.Entry.<Long, Double>comparingByValue()
+                    .thenComparing(Map.Entry.<Long, Double>comparingByKey());
+            PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(limit, byScore);
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                if (top.size() < limit) {
+                    top.offer(entry);
+                } else if (byScore.compare(entry, top.peek()) > 0) {
+                    top.poll();
+                    top.offer(entry);
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(byScore.reversed());
+
+            List<ProductSearchResponse> content = ranked.subList((int) offset, ranked.size()).stream()
+                    .map(entry -> documents.get(entry.getKey()).summary())
+                    .toList();
+            return new PageImpl<>(content, pageable, scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getIndexedProductCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Helper methods (callers hold the appropriate lock)
+
+    private void addInternal(Long modelNo, IndexedProduct document) {
+        documents.put(modelNo, document);
+        totalDocumentLength += document.length();
+        document.termWeights()
+                .forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(modelNo, weight));
+    }
+
+    private void removeInternal(Long modelNo) {
+        IndexedProduct previous = documents.remove(modelNo);
+        if (previous == null) {
+            return;
+        }
+        totalDocumentLength -= previous.length();
+        for (String term : previous.termWeights().keySet()) {
+            Map<Long, Double> postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(modelNo);
+                if (postingList.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expands a query term to index terms with a match weight: exact (1.0),
+     * prefix, and, only when nothing else matched, fuzzy. Fuzzy candidates are
+     * limited to terms sharing the first character.
+     */
+    private Map<String, Double> expand(String term) {
+        Map<String, Double> expansions = new HashMap<>();
+        if (postings.containsKey(term)) {
+            expansions.put(term, 1.0);
+        }
+
+        for (String candidate : postings.subMap(term, false, term + Character.MAX_VALUE, false).keySet()) {
+            if (expansions.size() >= MAX_EXPANSIONS) {
+                break;
+            }
+            expansions.put(candidate, PREFIX_MATCH_WEIGHT);
+        }
+
+        if (expansions.isEmpty() && term.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = term.length() >= 8 ? 2 : 1;
+            String first = term.substring(0, 1);
+            for (String candidate : postings.subMap(first, true, first + Character.MAX_VALUE, false).keySet()) {
+                if (expansions.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                if (Math.abs(candidate.length() - term.length()) <= maxEdits
+                        && withinEditDistance(term, candidate, maxEdits)) {
+                    expansions.put(candidate, FUZZY_MATCH_WEIGHT);
+                }
+            }
+        }
+        return expansions;
+    }
+
+    private IndexedProduct analyze(Product product) {
+        Map<String, Double> termWeights = new HashMap<>();
+        addField(termWeights, product.getName(), NAME_BOOST);
+        addField(termWeights, product.getBrandName(), BRAND_BOOST);
+        addField(termWeights, product.getGenericName(), GENERIC_NAME_BOOST);
+        addField(termWeights, product.getDescription(), DESCRIPTION_BOOST);
+        if (product.getAboutItems() != null) {
+            for (String aboutItem : product.getAboutItems()) {
+                addField(termWeights, aboutItem, ABOUT_BOOST);
+            }
+        }
+        double length = termWeights.values().stream().mapToDouble(Double::doubleValue).sum();
+        return new IndexedProduct(toSummary(product), termWeights, length);
+    }
+
+    private void addField(Map<String, Double> termWeights, String text, double boost) {
+        for (String token : tokenize(text)) {
+            termWeights.merge(token, boost, Double::sum);
+        }
+    }
+
+    private ProductSearchResponse toSummary(Product p) {
+        ProductSearchResponse dto = new ProductSearchResponse();
+        dto.setModelNo(p.getModelNo());
+        dto.setName(p.getName());
+
+        // Derive info from first variant
+        if (!p.getVariants().isEmpty()) {
+            ProductVariant v = p.getVariants().get(0);
+            dto.setPrice(v.getPrice());
+            dto.setColor(v.getColor());
+            if (!v.getImages().isEmpty()) {
+                dto.setImage1(v.getImages().get(0).getImageUrl());
+            }
+        }
+
+        dto.setCategory(p.getCategory() != null ? p.getCategory().name() : "");
+        dto.setBrandName(p.getBrandName());
+        return dto;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Bounded Damerau-Levenshtein (optimal string alignment) check that stops
+     * as soon as a whole row exceeds the edit budget.
+     */
+    private static boolean withinEditDistance(String a, String b, int maxEdits) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+}
@@ -3,10 +3,15 @@ package com.service;
 import com.entity.*;
 import com.payload.request.ProductRequest;
 import com.payload.request.ProductVariantRequest;
+import com.event.ProductCatalogChangedEvent;
 import com.payload.response.FeaturedProductResponse;
+import com.payload.response.ProductResponse;
+import com.payload.response.ProductSearchResponse;
+import com.mapper.ProductMapper;
 import com.repository.ProductRepository;
 import com.repository.ProductVariantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -64,9 +69,24 @@ public class ProductService {
     @Autowired
     private FileStorageUtil fileStorageUtil;
 
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
     @Autowired
     private ProductAttributeService attributeService;
 
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private com.repository.ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Product> getRecommendations(Long userId) {
         if (userId == null) {
             return productRepository.findAll();
@@ -84,7 +104,8 @@ public class ProductService {
                 Product lastProduct = variant.getProduct();
                 List<Product> similar = getSimilarProducts(lastProduct.getModelNo());
                 if (similar.isEmpty()) {
-                    return getProductsByCategory(lastProduct.getCategory()).stream().limit(8).toList();
+                    return getProductsByCategory(lastProduct.getCategory(),
+                            org.springframework.data.domain.PageRequest.of(0, 8)).getContent();
                 }
                 return similar;
             }
@@ -132,6 +153,74 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found with model no: " + modelNo));
     }
 
+    /**
+     * Maps products for list endpoints in a constant number of queries: variants
+     * and about items arrive through batch fetching, image references through a
+     * single projection that never reads the image bytes.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductResponse> toListResponses(List<Product> products) {
+        List<Long> variantIds = products.stream()
+                .flatMap(p -> p.getVariants().stream())
+                .map(ProductVariant::getId)
+                .toList();
+
+        Map<Long, List<com.payload.response.ProductVariantDTO.ProductImageDTO>> imagesByVariant = new java.util.HashMap<>();
+        if (!variantIds.isEmpty()) {
+            for (Object[] row : productImageRepository.findImageRefsByVariantIds(variantIds)) {
+                imagesByVariant.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                        .add(productMapper.toImageDTO((Long) row[1], (Boolean) row[2]));
+            }
+        }
+
+        return products.stream()
+                .map(p -> productMapper.toResponse(p, imagesByVariant))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public org.springframework.data.domain.Page<ProductResponse> toListResponsePage(
+            org.springframework.data.domain.Page<Product> page) {
+        return new org.springframework.data.domain.PageImpl<>(toListResponses(page.getContent()), page.getPageable(),
+                page.getTotalElements());
+    }
+
+    /**
+     * Newest-first product feed using keyset pagination on modelNo, so deep
+     * pages cost the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public com.payload.response.CursorPage<ProductResponse> getProductsPage(String after, int size) {
+        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
+        com.util.CursorCodec.Cursor cursor = com.util.CursorCodec.decode(after);
+        org.springframework.data.domain.Slice<Product> slice = cursor == null
+                ? productRepository.findAllByOrderByModelNoDesc(pageable)
+                : productRepository.findByModelNoLessThanOrderByModelNoDesc(cursor.id(), pageable);
+
+        List<Product> products = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !products.isEmpty()) {
+            Product last = products.get(products.size() - 1);
+            nextCursor = com.util.CursorCodec.encode(last.getModelNo(), last.getModelNo());
+        }
+        return new com.payload.response.CursorPage<>(toListResponses(products), nextCursor, slice.hasNext());
+    }
+
+    @Transactional(readOnly = true)
+    public org.springframework.data.domain.Page<com.dto.ProductSummaryDTO> getProductSummaries(
+            org.springframework.data.domain.Pageable pageable) {
+        return productRepository.findSummaries(pageable);
+    }
+
+    /**
+     * Loads and maps a product for the detail page. Callers normally go through
+     * ProductDetailCache; this always hits the database.
+     */
+    @Transactional(readOnly = true)
+    public ProductResponse getProductResponse(Long modelNo) {
+        return productMapper.toResponse(getProductByModelNo(modelNo));
+    }
+
     @Transactional
     public Product createProduct(ProductRequest request, Moderator moderator) {
         Product product = new Product();
@@ -163,7 +252,9 @@ public class ProductService {
             }
         }
 
-        return productRepository.save(savedProduct);
+        Product result = productRepository.save(savedProduct);
+        publishCatalogChange(result.getModelNo(), ProductCatalogChangedEvent.ChangeType.CREATED);
+        return result;
     }
 
     @Transactional
@@ -195,35 +286,48 @@ public class ProductService {
             }
         }
 
-        return productRepository.save(product);
+        Product result = productRepository.save(product);
+        publishCatalogChange(result.getModelNo(), ProductCatalogChangedEvent.ChangeType.UPDATED);
+        return result;
     }
 
     public void deleteProduct(Long modelNo) {
         productRepository.deleteById(Objects.requireNonNull(modelNo, "Model No is required"));
+        publishCatalogChange(modelNo, ProductCatalogChangedEvent.ChangeType.DELETED);
     }
 
-    public List<Product> getProductsByCategory(Category category) {
-        return productRepository.findAll().stream()
-                .filter(p -> p.getCategory() == category)
-                .toList();
+    public org.springframework.data.domain.Slice<Product> getProductsByCategory(Category category,
+            org.springframework.data.domain.Pageable pageable) {
+        return productRepository.findByCategory(category, pageable);
     }
 
-    public List<Product> getProductsByCategoryAndSubCategory(String category, String subCategory) {
+    public org.springframework.data.domain.Page<Product> getProductsByCategoryAndSubCategory(String category,
+            String subCategory, ProductGroup productGroup, String brandName, Double minPrice, Double maxPrice,
+            org.springframework.data.domain.Pageable pageable) {
         try {
             Category cat = Category.valueOf(category.toUpperCase());
             SubCategory subCat = SubCategory.valueOf(subCategory.toUpperCase());
-            return productRepository.findAll().stream()
-                    .filter(p -> p.getCategory() == cat && p.getSubCategory() == subCat)
-                    .toList();
+            return getCatalogPage(cat, subCat, productGroup, brandName, minPrice, maxPrice, pageable);
         } catch (IllegalArgumentException e) {
-            return List.of();
+            return org.springframework.data.domain.Page.empty(pageable);
         }
     }
 
-    public List<Product> getProductsBySubCategory(SubCategory subCategory) {
-        return productRepository.findAll().stream()
-                .filter(p -> p.getSubCategory() == subCategory)
-                .toList();
+    public org.springframework.data.domain.Page<Product> getProductsBySubCategory(SubCategory subCategory,
+            org.springframework.data.domain.Pageable pageable) {
+        return productRepository.findCatalogPage(null, subCategory, null, null, null, null, pageable);
+    }
+
+    /**
+     * Filtered catalog page. Null filters are ignored; all filtering, sorting and
+     * paging happens in the database.
+     */
+    public org.springframework.data.domain.Page<Product> getCatalogPage(Category category, SubCategory subCategory,
+            ProductGroup productGroup, String brandName, Double minPrice, Double maxPrice,
+            org.springframework.data.domain.Pageable pageable) {
+        String brand = brandName != null && !brandName.isBlank() ? brandName : null;
+        return productRepository.findCatalogPage(category, subCategory, productGroup, brand, minPrice, maxPrice,
+                pageable);
     }
 
     public long getTotalProductCount() {
@@ -231,17 +335,13 @@ public class ProductService {
     }
 
     public long countProductsByCategory(Category category) {
-        return productRepository.findAll().stream()
-                .filter(p -> p.getCategory() == category)
-                .count();
+        return productRepository.countByCategory(category);
     }
 
-    public List<Product> searchProducts(String query) {
-        // Return empty list or basic filter for now
-        // return productRepository.searchFallback(query);
-        return productRepository.findAll().stream()
-                .filter(p -> p.getName().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+    public org.springframework.data.domain.Page<ProductSearchResponse> searchProducts(String query,
+            org.springframework.data.domain.Pageable pageable) {
+        // Served from the in-memory index, no catalog scan
+        return productSearchService.search(query, pageable);
     }
 
     public List<Product> getSimilarProducts(Long modelNo) {
@@ -252,18 +352,13 @@ public class ProductService {
             return List.of();
         }
 
-        return productRepository.findAll().stream()
-                .filter(p -> p.getCategory() == category && !Objects.equals(p.getModelNo(), modelNo))
-                .limit(4)
-                .toList();
+        return productRepository
+                .findByCategoryAndModelNoNot(category, modelNo, org.springframework.data.domain.PageRequest.of(0, 4))
+                .getContent();
     }
 
     public List<Category> getActiveCategories() {
-        return productRepository.findAll().stream()
-                .map(Product::getCategory)
-                .filter(Objects::nonNull)
-                .distinct()
-                .collect(Collectors.toList());
+        return productRepository.findDistinctCategories();
     }
 
     public List<Product> getRandomProducts(int limit) {
@@ -378,7 +473,13 @@ public class ProductService {
     }
 
     public Product updateProductFields(Product product) {
-        return productRepository.save(Objects.requireNonNull(product, "Product is required"));
+        Product saved = productRepository.save(Objects.requireNonNull(product, "Product is required"));
+        publishCatalogChange(saved.getModelNo(), ProductCatalogChangedEvent.ChangeType.UPDATED);
+        return saved;
+    }
+
+    private void publishCatalogChange(Long modelNo, ProductCatalogChangedEvent.ChangeType changeType) {
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, modelNo, changeType));
     }
 
     @Transactional
@@ -450,6 +551,9 @@ public class ProductService {
     }
 
     private Product saveProductInternal(Product product, ProductDto productDto, List<MultipartFile> files) {
+        ProductCatalogChangedEvent.ChangeType changeType = product.getModelNo() == null
+                ? ProductCatalogChangedEvent.ChangeType.CREATED
+                : ProductCatalogChangedEvent.ChangeType.UPDATED;
         Map<String, MultipartFile> fileMap = files != null ? files.stream()
                 .collect(Collectors.toMap(MultipartFile::getOriginalFilename, Function.identity(), (a, b) -> a))
                 : Map.of();
@@ -551,6 +655,7 @@ public class ProductService {
                     if (imageUrl != null && fileMap.containsKey(imageUrl)) {
                         MultipartFile file = fileMap.get(imageUrl);
                         String storedPath = fileStorageUtil.storeFile(file);
+                        imageRenditionService.submit(fileStorageUtil.resolveStoredPath(storedPath));
                         img.setImageUrl(storedPath);
                         img.setImageType(file.getContentType());
                     } else {
@@ -565,6 +670,8 @@ public class ProductService {
                 }
             }
         }
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        publishCatalogChange(saved.getModelNo(), changeType);
+        return saved;
     }
 }
@@ -2,14 +2,24 @@ package com.service;
 
 import com.dto.ReviewResponseDTO;
 import com.entity.*;
+import com.event.ProductCatalogChangedEvent;
+import com.exception.InvalidCursorException;
 import com.mapper.ReviewMapper;
 import com.payload.request.ReviewRequest;
+import com.payload.response.CursorPage;
 import com.repository.ProductRepository;
 import com.repository.UserReviewRepository;
+import com.util.CursorCodec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Objects;
 
@@ -22,6 +32,9 @@ public class ReviewService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional
     public ReviewResponseDTO addReview(User user, ReviewRequest request) {
         Product product = productRepository
@@ -63,6 +76,37 @@ public class ReviewService {
                 .toList();
     }
 
+    /**
+     * Get reviews newest first, one keyset page at a time.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ReviewResponseDTO> getReviewsPage(String after, int size) {
+        Pageable pageable = PageRequest.of(0, size);
+        CursorCodec.Cursor cursor = CursorCodec.decode(after);
+        Slice<UserReview> slice;
+        if (cursor == null) {
+            slice = userReviewRepository.findFirstPage(pageable);
+        } else {
+            slice = userReviewRepository.findPageAfter(parseDate(cursor.sortKey()), cursor.id(), pageable);
+        }
+
+        List<UserReview> reviews = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !reviews.isEmpty()) {
+            UserReview last = reviews.get(reviews.size() - 1);
+            nextCursor = CursorCodec.encode(last.getReviewDate(), last.getId());
+        }
+        return new CursorPage<>(reviews.stream().map(ReviewMapper::toDTO).toList(), nextCursor, slice.hasNext());
+    }
+
+    private LocalDateTime parseDate(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
     /**
      * Get a review by ID.
      */
@@ -100,6 +144,8 @@ public class ReviewService {
             product.setAverageRating(0.0);
         }
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(this, product.getModelNo(),
+                ProductCatalogChangedEvent.ChangeType.RATING_UPDATED));
     }
 
     public long getTotalReviewCount() {
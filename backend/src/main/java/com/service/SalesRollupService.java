@@ -0,0 +1,305 @@
+package com.service;
+
+import com.entity.DailySalesRollup;
+import com.event.OrderSalesChangedEvent;
+import com.repository.DailySalesRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * SalesRollupService
+ * ==================
+ *
+ * Maintains daily_sales_rollup so dashboards read one row per day instead of
+ * scanning orders.
+ *
+ * Order lifecycle changes are applied incrementally after commit: the event
+ * carries what the order counted for before and after the change, and each
+ * affected (tenant, day) row is adjusted by the difference with a single-row
+ * INSERT ... VALUES ... ON DUPLICATE KEY UPDATE col = col + VALUES(col). That
+ * is constant work per change and never reads orders, so it takes no locks
+ * on them.
+ *
+ * Deltas are not idempotent (a lost or replayed event skews a day), so the
+ * backfill and the nightly repair still recompute whole days from the orders
+ * (zero the day's rows, then INSERT ... SELECT ... ON DUPLICATE KEY UPDATE).
+ */
+@Service
+@Slf4j
+public class SalesRollupService {
+
+    private static final int BACKFILL_CHUNK_DAYS = 31;
+
+    // Platform-wide row per day (tenant 0). Item commission/net are pre-summed per order.
+    private static final String UPSERT_PLATFORM_SQL = "INSERT INTO daily_sales_rollup "
+            + "(tenant_id, day, orders, gross, commission, net, cancelled, paid, updated_at) "
+            + "SELECT 0, DATE(o.order_date), COUNT(*), "
+            + "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN o.total_amount END), 0), "
+            + "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN c.commission END), 0), "
+            + "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN c.net END), 0), "
+            + "SUM(CASE WHEN o.status = 'CANCELLED' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN o.payment_status = 'COMPLETED' THEN 1 ELSE 0 END), ? "
+            + "FROM orders o LEFT JOIN ("
+            + "  SELECT oi.order_id, SUM(COALESCE(oi.commission_amount, 0)) AS commission, "
+            + "  SUM(COALESCE(oi.net_amount, 0)) AS net "
+            + "  FROM order_item oi JOIN orders io ON io.id = oi.order_id "
+            + "  WHERE io.order_date >= ? AND io.order_date < ? GROUP BY oi.order_id"
+            + ") c ON c.order_id = o.id "
+            + "WHERE o.order_date >= ? AND o.order_date < ? "
+            + "GROUP BY DATE(o.order_date) "
+            + "ON DUPLICATE KEY UPDATE orders = VALUES(orders), gross = VALUES(gross), "
+            + "commission = VALUES(commission), net = VALUES(net), cancelled = VALUES(cancelled), "
+            + "paid = VALUES(paid), updated_at = VALUES(updated_at)";
+
+    // Per-tenant rows: an order counts for every tenant that has an item in it
+    private static final String UPSERT_TENANT_SQL = "INSERT INTO daily_sales_rollup "
+            + "(tenant_id, day, orders, gross, commission, net, cancelled, paid, updated_at) "
+            + "SELECT oi.tenant_id, DATE(o.order_date), COUNT(DISTINCT o.id), "
+            + "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' "
+            + "  THEN COALESCE(oi.gross_amount, oi.price * oi.quantity) END), 0), "
+            + "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN COALESCE(oi.commission_amount, 0) END), 0), "
+            + "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN COALESCE(oi.net_amount, 0) END), 0), "
+            + "COUNT(DISTINCT CASE WHEN o.status = 'CANCELLED' THEN o.id END), "
+            + "COUNT(DISTINCT CASE WHEN o.payment_status = 'COMPLETED' THEN o.id END), ? "
+            + "FROM order_item oi JOIN orders o ON o.id = oi.order_id "
+            + "WHERE o.order_date >= ? AND o.order_date < ? AND oi.tenant_id IS NOT NULL "
+            + "GROUP BY oi.tenant_id, DATE(o.order_date) "
+            + "ON DUPLICATE KEY UPDATE orders = VALUES(orders), gross = VALUES(gross), "
+            + "commission = VALUES(commission), net = VALUES(net), cancelled = VALUES(cancelled), "
+            + "paid = VALUES(paid), updated_at = VALUES(updated_at)";
+
+    private static final String APPLY_DELTA_SQL = "INSERT INTO daily_sales_rollup "
+            + "(tenant_id, day, orders, gross, commission, net, cancelled, paid, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE orders = orders + VALUES(orders), gross = gross + VALUES(gross), "
+            + "commission = commission + VALUES(commission), net = net + VALUES(net), "
+            + "cancelled = cancelled + VALUES(cancelled), paid = paid + VALUES(paid), updated_at = VALUES(updated_at)";
+
+    // Days that lost all their orders (deletes) must not keep stale numbers
+    private static final String RESET_SQL = "UPDATE daily_sales_rollup SET orders = 0, gross = 0, commission = 0, "
+            + "net = 0, cancelled = 0, paid = 0, updated_at = ? WHERE day >= ? AND day < ?";
+
+    /**
+     * Change of one rollup row caused by one order change.
+     */
+    public record Delta(long tenantId, long orders, double gross, double commission, double net, long cancelled,
+            long paid) {
+
+        boolean isEmpty() {
+            return orders == 0 && gross == 0 && commission == 0 && net == 0 && cancelled == 0 && paid == 0;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DailySalesRollupRepository rollupRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public SalesRollupService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderSalesChanged(OrderSalesChangedEvent event) {
+        if (event.getOrderDay() == null) {
+            return;
+        }
+        try {
+            List<Delta> deltas = deltas(event.getBefore(), event.getAfter());
+            if (deltas.isEmpty()) {
+                return;
+            }
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            Date day = Date.valueOf(event.getOrderDay());
+            // Ascending tenant order, so two concurrent changes lock the day's rows in the same order
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, deltas, deltas.size(), (ps, delta) -> {
+                ps.setLong(1, delta.tenantId());
+                ps.setDate(2, day);
+                ps.setLong(3, delta.orders());
+                ps.setDouble(4, delta.gross());
+                ps.setDouble(5, delta.commission());
+                ps.setDouble(6, delta.net());
+                ps.setLong(7, delta.cancelled());
+                ps.setLong(8, delta.paid());
+                ps.setTimestamp(9, now);
+            });
+        } catch (Exception e) {
+            // The order itself is committed; the nightly refresh repairs the day
+            log.error("Failed to update sales rollup for {}: {}", event.getOrderDay(), e.getMessage());
+        }
+    }
+
+    /**
+     * Row changes that turn the rollups of an order's day from counting
+     * {@code before} into counting {@code after} (either may be null: placed,
+     * deleted). The platform row comes first, then tenants in ascending order;
+     * rows that do not change are left out.
+     */
+    public static List<Delta> deltas(OrderSalesChangedEvent.Contribution before,
+            OrderSalesChangedEvent.Contribution after) {
+        List<Delta> deltas = new ArrayList<>();
+        addDelta(deltas, DailySalesRollup.PLATFORM_TENANT, before, platformShare(before), after,
+                platformShare(after));
+
+        TreeSet<Long> tenantIds = new TreeSet<>();
+        if (before != null) {
+            tenantIds.addAll(before.tenants().keySet());
+        }
+        if (after != null) {
+            tenantIds.addAll(after.tenants().keySet());
+        }
+        for (Long tenantId : tenantIds) {
+            addDelta(deltas, tenantId, before, before != null ? before.tenants().get(tenantId) : null, after,
+                    after != null ? after.tenants().get(tenantId) : null);
+        }
+        return deltas;
+    }
+
+    /**
+     * Recomputes rollups for days in [from, to) from the orders, for the
+     * backfill and the nightly repair. Runs in the caller's transaction.
+     */
+    public void recompute(LocalDate from, LocalDate to) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Timestamp fromTs = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp toTs = Timestamp.valueOf(to.atStartOfDay());
+
+        jdbcTemplate.update(RESET_SQL, now, Date.valueOf(from), Date.valueOf(to));
+        jdbcTemplate.update(UPSERT_PLATFORM_SQL, now, fromTs, toTs, fromTs, toTs);
+        jdbcTemplate.update(UPSERT_TENANT_SQL, now, fromTs, toTs);
+    }
+
+    /**
+     * Rebuilds rollups for [from, to] (inclusive), one month per transaction so
+     * a full-history backfill doesn't hold locks on all orders at once.
+     */
+    public void rebuild(LocalDate from, LocalDate to) {
+        long start = System.currentTimeMillis();
+        LocalDate end = to.plusDays(1);
+        for (LocalDate chunkStart = from; chunkStart.isBefore(end); chunkStart = chunkStart
+                .plusDays(BACKFILL_CHUNK_DAYS)) {
+            LocalDate chunkEnd = chunkStart.plusDays(BACKFILL_CHUNK_DAYS).isBefore(end)
+                    ? chunkStart.plusDays(BACKFILL_CHUNK_DAYS)
+                    : end;
+            LocalDate chunkFrom = chunkStart;
+            transactionTemplate.executeWithoutResult(status -> recompute(chunkFrom, chunkEnd));
+        }
+        log.info("Sales rollups rebuilt for {} to {} in {} ms", from, to, System.currentTimeMillis() - start);
+    }
+
+    public void rebuildAll() {
+        Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(order_date) FROM orders", Timestamp.class);
+        if (first == null) {
+            return;
+        }
+        rebuild(first.toLocalDateTime().toLocalDate(), LocalDate.now());
+    }
+
+    /**
+     * Backfills on first start (empty rollup table with existing orders).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (rollupRepository.count() == 0) {
+                log.info("Sales rollup table is empty, backfilling from order history");
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            log.error("Sales rollup backfill failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Safety net: re-derive the last few days every night in case an
+     * after-commit update was lost (crash, failed listener).
+     */
+    @Scheduled(cron = "0 15 2 * * ?")
+    public void refreshRecentDays() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(3), today);
+    }
+
+    // Read side
+
+    public List<DailySalesRollup> getDailyRollups(Long tenantId, LocalDate from) {
+        return rollupRepository.findByTenantIdAndDayGreaterThanEqualOrderByDayAsc(
+                tenantId != null ? tenantId : DailySalesRollup.PLATFORM_TENANT, from);
+    }
+
+    /**
+     * Returns [orders, gross, cancelled] across all days.
+     */
+    public double[] getTotals(Long tenantId) {
+        List<Object[]> rows = rollupRepository.getTotals(tenantId != null ? tenantId : DailySalesRollup.PLATFORM_TENANT);
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return new double[] { 0, 0, 0 };
+        }
+        Object[] row = rows.get(0);
+        return new double[] {
+                ((Number) row[0]).doubleValue(),
+                ((Number) row[1]).doubleValue(),
+                ((Number) row[2]).doubleValue()
+        };
+    }
+
+    // Helper methods
+
+    // An order counts for a row (and its amounts, unless cancelled) only while it has a share in it
+    private static void addDelta(List<Delta> deltas, long tenantId, OrderSalesChangedEvent.Contribution before,
+            OrderSalesChangedEvent.TenantShare was, OrderSalesChangedEvent.Contribution after,
+            OrderSalesChangedEvent.TenantShare is) {
+        Delta delta = new Delta(tenantId,
+                flag(is != null) - flag(was != null),
+                amount(after, is, OrderSalesChangedEvent.TenantShare::gross)
+                        - amount(before, was, OrderSalesChangedEvent.TenantShare::gross),
+                amount(after, is, OrderSalesChangedEvent.TenantShare::commission)
+                        - amount(before, was, OrderSalesChangedEvent.TenantShare::commission),
+                amount(after, is, OrderSalesChangedEvent.TenantShare::net)
+                        - amount(before, was, OrderSalesChangedEvent.TenantShare::net),
+                flag(is != null && after.cancelled()) - flag(was != null && before.cancelled()),
+                flag(is != null && after.paid()) - flag(was != null && before.paid()));
+        if (!delta.isEmpty()) {
+            deltas.add(delta);
+        }
+    }
+
+    private static OrderSalesChangedEvent.TenantShare platformShare(OrderSalesChangedEvent.Contribution contribution) {
+        return contribution != null
+                ? new OrderSalesChangedEvent.TenantShare(contribution.gross(), contribution.commission(),
+                        contribution.net())
+                : null;
+    }
+
+    private static double amount(OrderSalesChangedEvent.Contribution contribution,
+            OrderSalesChangedEvent.TenantShare share, ToDoubleFunction<OrderSalesChangedEvent.TenantShare> field) {
+        return share != null && !contribution.cancelled() ? field.applyAsDouble(share) : 0;
+    }
+
+    private static long flag(boolean set) {
+        return set ? 1 : 0;
+    }
+}
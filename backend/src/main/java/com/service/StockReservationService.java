@@ -0,0 +1,300 @@
+package com.service;
+
+import com.entity.Order;
+import com.entity.OrderStatus;
+import com.entity.PaymentStatus;
+import com.entity.ProductVariant;
+import com.entity.ReservationStatus;
+import com.entity.StockReservation;
+import com.entity.User;
+import com.event.OrderSalesChangedEvent;
+import com.event.OrderStatusChangedEvent;
+import com.event.ProductCatalogChangedEvent;
+import com.repository.OrderRepository;
+import com.repository.ProductVariantRepository;
+import com.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * StockReservationService
+ * =======================
+ *
+ * Time-boxes the stock taken by orders that still have to be paid online
+ * (UPI). Checkout takes the stock as usual and records a HELD reservation per
+ * line; verifyPayment turns it into COMMITTED; if payment has not arrived when
+ * the hold expires, the stock goes back and the order is cancelled.
+ *
+ * product_variant.quantity therefore always is the available-to-sell figure:
+ * held units are already subtracted, so availability checks stay a single-row
+ * read.
+ *
+ * Expiry is driven by an in-memory schedule of (second -> order ids) ticked
+ * every second. The stock_reservation table stays the source of truth: every
+ * state change is a conditional HELD -> X update, so expiry and a late payment
+ * racing on the same order cannot both win, and a periodic sweep of the table
+ * picks up holds this node never scheduled (restart, other instances).
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.stock.reservation.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Expiry epoch second -> orders whose hold ends in that second
+    private final ConcurrentSkipListMap<Long, Set<Long>> expirySchedule = new ConcurrentSkipListMap<>();
+
+    public StockReservationService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Only orders paid through the QR/UPI flow wait for a separate payment
+     * step; everything else is final at checkout.
+     */
+    public boolean holdsStockUntilPaid(String paymentMethod) {
+        return "upi".equalsIgnoreCase(paymentMethod);
+    }
+
+    /**
+     * Records the stock already taken for an order as held until the TTL runs
+     * out. Runs in the checkout transaction.
+     */
+    @Transactional
+    public void hold(Long orderId, Map<Long, Integer> quantitiesByVariant) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(ttlMinutes);
+        List<StockReservation> reservations = quantitiesByVariant.entrySet().stream().map(line -> {
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(orderId);
+            reservation.setVariantId(line.getKey());
+            reservation.setQuantity(line.getValue());
+            reservation.setStatus(ReservationStatus.HELD);
+            reservation.setCreatedAt(now);
+            reservation.setExpiresAt(expiresAt);
+            return reservation;
+        }).toList();
+        reservationRepository.saveAll(reservations);
+        schedule(orderId, expiresAt);
+    }
+
+    /**
+     * Makes an order's reservation permanent once it is paid. If the hold
+     * already expired, the stock is taken again; when it has sold out in the
+     * meantime this throws and the payment is not confirmed.
+     */
+    @Transactional
+    public void commit(Long orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (reservationRepository.transition(orderId, ReservationStatus.HELD, ReservationStatus.COMMITTED, now) > 0) {
+            return;
+        }
+
+        List<StockReservation> released = reservationRepository.findByOrderId(orderId).stream()
+                .filter(r -> r.getStatus() == ReservationStatus.RELEASED)
+                .toList();
+        if (released.isEmpty()) {
+            // No reservation (non-UPI order) or already committed
+            return;
+        }
+
+        try {
+            inventoryService.reserveStock(quantitiesByVariant(released));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Stock reservation for order " + orderId
+                    + " expired and the items are no longer available", e);
+        }
+        reservationRepository.transition(orderId, ReservationStatus.RELEASED, ReservationStatus.COMMITTED, now);
+        publishStockChanges(released);
+
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            OrderSalesChangedEvent.Contribution before = OrderSalesChangedEvent.Contribution.of(order);
+            order.setStatus(OrderStatus.PENDING);
+            orderRepository.save(order);
+            publishSalesChange(order, before);
+        }
+        log.info("Re-reserved stock for order {} paid after its hold expired", orderId);
+    }
+
+    /**
+     * Drops the hold of an order that is being cancelled or deleted. The
+     * caller gives the stock back itself. Returns the number of lines
+     * released; 0 when the order holds nothing, which includes a hold that
+     * expiry released first (see isReleased).
+     */
+    @Transactional
+    public int cancel(Long orderId) {
+        return reservationRepository.transition(orderId, ReservationStatus.HELD, ReservationStatus.RELEASED,
+                LocalDateTime.now());
+    }
+
+    /**
+     * Whether the order's hold was released, i.e. its stock has already been
+     * given back. Reads the latest committed rows, not the caller's snapshot.
+     */
+    @Transactional
+    public boolean isReleased(Long orderId) {
+        return reservationRepository.countReleasedForShare(orderId) > 0;
+    }
+
+    @Transactional
+    public void delete(Long orderId) {
+        reservationRepository.deleteByOrderId(orderId);
+    }
+
+    /**
+     * Units of a variant currently held by unpaid orders (already excluded
+     * from the variant's quantity).
+     */
+    public long getHeldQuantity(Long variantId) {
+        return reservationRepository.sumHeldQuantity(variantId);
+    }
+
+    // Expiry
+
+    @Scheduled(fixedDelay = 1000)
+    public void expireDue() {
+        long nowSecond = System.currentTimeMillis() / 1000;
+        ConcurrentNavigableMap<Long, Set<Long>> due = expirySchedule.headMap(nowSecond, true);
+        for (Long second : due.keySet()) {
+            Set<Long> orderIds = expirySchedule.remove(second);
+            if (orderIds != null) {
+                orderIds.forEach(this::expire);
+            }
+        }
+    }
+
+    /**
+     * Safety net for holds that are not in this node's schedule.
+     */
+    @Scheduled(fixedDelayString = "${app.stock.reservation.sweep-ms:60000}")
+    public void sweepExpired() {
+        reservationRepository.findExpiredOrderIds(LocalDateTime.now()).forEach(this::expire);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSchedule() {
+        try {
+            List<Object[]> held = reservationRepository.findHeldOrderExpiries();
+            for (Object[] row : held) {
+                schedule((Long) row[0], (LocalDateTime) row[1]);
+            }
+            log.info("Scheduled expiry for {} orders holding stock", held.size());
+        } catch (Exception e) {
+            log.error("Failed to load stock reservations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Releases an unpaid order's stock and cancels it, in its own transaction.
+     * A no-op when the order was paid, cancelled or expired meanwhile.
+     */
+    public void expire(Long orderId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (reservationRepository.transition(orderId, ReservationStatus.HELD, ReservationStatus.RELEASED,
+                        LocalDateTime.now()) == 0) {
+                    return;
+                }
+                List<StockReservation> lines = reservationRepository.findByOrderId(orderId);
+                inventoryService.releaseStock(quantitiesByVariant(lines));
+                publishStockChanges(lines);
+
+                orderRepository.findById(orderId).ifPresent(this::cancelUnpaid);
+                log.info("Stock hold for order {} expired, released {} lines", orderId, lines.size());
+            });
+        } catch (Exception e) {
+            // Still HELD in the table, the next sweep retries
+            log.error("Failed to expire stock hold for order {}: {}", orderId, e.getMessage());
+        }
+    }
+
+    // Helper methods
+
+    private void schedule(Long orderId, LocalDateTime expiresAt) {
+        long second = expiresAt.atZone(ZoneId.systemDefault()).toEpochSecond();
+        expirySchedule.computeIfAbsent(second, s -> ConcurrentHashMap.newKeySet()).add(orderId);
+    }
+
+    private void cancelUnpaid(Order order) {
+        if (order.getPaymentStatus() == PaymentStatus.COMPLETED || order.getStatus() == OrderStatus.CANCELLED) {
+            return;
+        }
+        OrderSalesChangedEvent.Contribution before = OrderSalesChangedEvent.Contribution.of(order);
+        order.setStatus(OrderStatus.CANCELLED);
+        order.setPaymentStatus(PaymentStatus.FAILED);
+        orderRepository.save(order);
+
+        publishSalesChange(order, before);
+        User user = order.getUser();
+        if (user != null) {
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(
+                    this,
+                    user.getEmail(),
+                    order.getId().toString(),
+                    OrderStatus.CANCELLED.name(),
+                    user.getName(),
+                    OrderStatusChangedEvent.EventType.CANCELLED));
+        }
+    }
+
+    private void publishSalesChange(Order order, OrderSalesChangedEvent.Contribution before) {
+        if (order.getOrderDate() != null) {
+            eventPublisher.publishEvent(new OrderSalesChangedEvent(this, order.getOrderDate().toLocalDate(), before,
+                    OrderSalesChangedEvent.Contribution.of(order)));
+        }
+    }
+
+    private Map<Long, Integer> quantitiesByVariant(List<StockReservation> reservations) {
+        return reservations.stream()
+                .collect(Collectors.toMap(StockReservation::getVariantId, StockReservation::getQuantity,
+                        Integer::sum));
+    }
+
+    private void publishStockChanges(List<StockReservation> reservations) {
+        reservations.stream().map(StockReservation::getVariantId).distinct()
+                .map(productVariantRepository::findById)
+                .forEach(variant -> variant.map(ProductVariant::getProduct).ifPresent(product -> eventPublisher
+                        .publishEvent(new ProductCatalogChangedEvent(this, product.getModelNo(),
+                                ProductCatalogChangedEvent.ChangeType.STOCK_UPDATED))));
+    }
+}
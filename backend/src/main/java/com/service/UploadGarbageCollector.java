@@ -0,0 +1,182 @@
+package com.service;
+
+import com.repository.ProductImageRepository;
+import com.repository.UserRepository;
+import com.util.FileStorageUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * UploadGarbageCollector
+ * ======================
+ *
+ * Deletes content-addressed blobs (see FileStorageUtil) that no row names
+ * any more, together with their renditions. The reference count of a blob is
+ * the number of ProductImage rows whose imageUrl, plus users whose
+ * profilePicturePath, is its stored path; it is counted here instead of
+ * being kept in a column, so rows removed by orphan removal or cascades need
+ * no bookkeeping.
+ *
+ * Blobs modified within app.storage.gc.grace-minutes are left alone: an
+ * upload stores (or touches) its blob before the row naming it commits.
+ * An unreferenced blob is first renamed out of the way ("{blob}.gc"), then
+ * its references and mtime are checked again and it is either deleted or
+ * put back. An upload of the same content that comes in meanwhile finds no
+ * blob, or fails to touch it, and stores a fresh copy (see
+ * FileStorageUtil.storeContent), so no upload can end up pointing at a
+ * deleted file.
+ * Leftover temporary files of interrupted uploads go the same way. Legacy
+ * uploads outside uploads/blobs are never touched.
+ */
+@Service
+@Slf4j
+public class UploadGarbageCollector {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String QUARANTINE_SUFFIX = ".gc";
+
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.storage.gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Scheduled(fixedDelayString = "${app.storage.gc.interval-ms:3600000}",
+            initialDelayString = "${app.storage.gc.interval-ms:3600000}")
+    public synchronized void collect() {
+        long start = System.currentTimeMillis();
+        long cutoff = start - graceMinutes * 60_000;
+
+        // Stored path -> file, for blobs old enough to be judged
+        Map<String, Path> candidates = new LinkedHashMap<>();
+        int deletedBlobs = 0;
+        int deletedTemp = 0;
+        try (Stream<Path> files = Files.walk(fileStorageUtil.getBlobLocation(), 3)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                if (name.endsWith(QUARANTINE_SUFFIX)) {
+                    // Left by a collection that stopped halfway: put it back and judge it next time
+                    restore(file, file.resolveSibling(name.substring(0, name.length() - QUARANTINE_SUFFIX.length())));
+                    continue;
+                }
+                if (attributes.lastModifiedTime().toMillis() > cutoff) {
+                    continue;
+                }
+                if (name.endsWith(".tmp")) {
+                    deletedTemp += Files.deleteIfExists(file) ? 1 : 0;
+                } else if (FileStorageUtil.contentHashOf(file) != null) {
+                    candidates.put(fileStorageUtil.toStoredPath(file), file);
+                    if (candidates.size() >= BATCH_SIZE) {
+                        deletedBlobs += deleteUnreferenced(candidates);
+                        candidates.clear();
+                    }
+                }
+            }
+            deletedBlobs += deleteUnreferenced(candidates);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Upload garbage collection stopped early: {}", e.getMessage());
+        }
+
+        if (deletedBlobs > 0 || deletedTemp > 0) {
+            log.info("Deleted {} unreferenced blobs and {} stale temporary files in {} ms", deletedBlobs, deletedTemp,
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    // Helper methods
+
+    private int deleteUnreferenced(Map<String, Path> candidates) throws IOException {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        Set<String> referenced = findReferenced(candidates.keySet());
+
+        // Stored path -> blob, for blobs moved to their quarantine name
+        Map<String, Path> quarantined = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> candidate : candidates.entrySet()) {
+            if (referenced.contains(candidate.getKey())) {
+                continue;
+            }
+            Path blob = candidate.getValue();
+            try {
+                Files.move(blob, quarantineOf(blob), StandardCopyOption.ATOMIC_MOVE);
+                quarantined.put(candidate.getKey(), blob);
+            } catch (NoSuchFileException e) {
+                // Already gone
+            }
+        }
+        if (quarantined.isEmpty()) {
+            return 0;
+        }
+
+        // Rows committed since the first check, and uploads that touched the blob before the move, keep it
+        Set<String> referencedNow = findReferenced(quarantined.keySet());
+        long cutoff = System.currentTimeMillis() - graceMinutes * 60_000;
+        int deleted = 0;
+        for (Map.Entry<String, Path> entry : quarantined.entrySet()) {
+            Path blob = entry.getValue();
+            Path quarantine = quarantineOf(blob);
+            if (referencedNow.contains(entry.getKey()) || Files.getLastModifiedTime(quarantine).toMillis() > cutoff) {
+                restore(quarantine, blob);
+                continue;
+            }
+            Files.delete(quarantine);
+            deleted++;
+            // An upload of the same content may have stored it again meanwhile; its renditions still apply
+            if (!Files.exists(blob)) {
+                for (ImageRenditionService.Rendition rendition : ImageRenditionService.Rendition.values()) {
+                    Files.deleteIfExists(ImageRenditionService.pathOf(blob, rendition));
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private Set<String> findReferenced(Set<String> storedPaths) {
+        List<String> paths = new ArrayList<>(storedPaths);
+        Set<String> referenced = new HashSet<>(productImageRepository.findReferencedImageUrls(paths));
+        referenced.addAll(userRepository.findReferencedProfilePicturePaths(paths));
+        return referenced;
+    }
+
+    private static Path quarantineOf(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + QUARANTINE_SUFFIX);
+    }
+
+    private static void restore(Path quarantine, Path blob) throws IOException {
+        if (Files.exists(blob)) {
+            // An upload stored the same content again meanwhile
+            Files.delete(quarantine);
+        } else {
+            Files.move(quarantine, blob, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
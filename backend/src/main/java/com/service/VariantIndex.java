@@ -0,0 +1,157 @@
+package com.service;
+
+import com.event.ProductCatalogChangedEvent;
+import com.repository.ProductVariantRepository;
+import com.util.InvalidationVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * VariantIndex
+ * ============
+ *
+ * Per-product map of (color, size) to variant id, so add-to-cart resolves the
+ * chosen variant with a map lookup instead of loading every variant of the
+ * product. Built on first use from a three-column query, bounded by entry
+ * count (least recently used goes first) and dropped per product once a
+ * {@link ProductCatalogChangedEvent} that may add, remove or rename variants
+ * commits. Stock and rating changes leave it alone; a lookup that misses
+ * reloads the product once before giving up, and a bulk import that skips
+ * per-product events clears the whole index when it finishes.
+ *
+ * Color and size match case-insensitively, like the database collation; a
+ * missing and a blank value are the same.
+ */
+@Service
+public class VariantIndex {
+
+    private record ProductVariants(Map<String, Long> byKey, Long onlyVariantId) {
+    }
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    private final int maxEntries;
+
+    // Access-ordered so the eldest entry is the least recently used one
+    private final LinkedHashMap<Long, ProductVariants> entries;
+
+    // A load that overlapped an invalidation of its product is not cached
+    private final InvalidationVersions<Long> versions = new InvalidationVersions<>();
+
+    public VariantIndex(@Value("${app.cache.variant-index.max-entries:5000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ProductVariants> eldest) {
+                return size() > VariantIndex.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the id of the product's variant with this color and size, or
+     * null if there is none. A product with a single variant also matches a
+     * request that gives neither color nor size.
+     */
+    public Long findVariantId(Long modelNo, String color, String size) {
+        Long variantId = find(get(modelNo), color, size);
+        if (variantId == null) {
+            // The entry may predate variants added without a structural event (bulk imports), so look once more
+            variantId = find(reload(modelNo), color, size);
+        }
+        return variantId;
+    }
+
+    public void invalidate(Long modelNo) {
+        synchronized (entries) {
+            versions.invalidate(modelNo);
+            entries.remove(modelNo);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            versions.invalidateAll();
+            entries.clear();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.getModelNo() != null && !event.getChangeType().isDetailOnly()) {
+            invalidate(event.getModelNo());
+        }
+    }
+
+    // Helper methods
+
+    private static Long find(ProductVariants variants, String color, String size) {
+        Long variantId = variants.byKey().get(key(color, size));
+        if (variantId == null && isBlank(color) && isBlank(size)) {
+            return variants.onlyVariantId();
+        }
+        return variantId;
+    }
+
+    private ProductVariants reload(Long modelNo) {
+        synchronized (entries) {
+            entries.remove(modelNo);
+        }
+        return get(modelNo);
+    }
+
+    private ProductVariants get(Long modelNo) {
+        long loadStart;
+        synchronized (entries) {
+            ProductVariants cached = entries.get(modelNo);
+            if (cached != null) {
+                return cached;
+            }
+            loadStart = versions.beginLoad();
+        }
+
+        try {
+            List<Object[]> rows = productVariantRepository.findVariantKeysByModelNo(modelNo);
+            Map<String, Long> byKey = new HashMap<>();
+            for (Object[] row : rows) {
+                // Keep the lowest id if two variants share a color and size
+                byKey.merge(key((String) row[1], (String) row[2]), (Long) row[0], Math::min);
+            }
+            ProductVariants variants = new ProductVariants(byKey,
+                    rows.size() == 1 ? (Long) rows.get(0)[0] : null);
+
+            synchronized (entries) {
+                if (versions.isCurrent(modelNo, loadStart)) {
+                    entries.put(modelNo, variants);
+                }
+            }
+            return variants;
+        } finally {
+            synchronized (entries) {
+                versions.endLoad();
+            }
+        }
+    }
+
+    private static String key(String color, String size) {
+        return normalize(color) + "\u0000" + normalize(size);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
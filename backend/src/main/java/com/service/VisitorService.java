@@ -24,6 +24,9 @@ public class VisitorService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CartService cartService;
+
     /**
      * Creates or updates a visitor record.
      */
@@ -86,18 +89,27 @@ public class VisitorService {
     }
 
     /**
-     * Links visitor to user upon registration (User Conversion).
+     * Links visitor to user upon registration or login (User Conversion) and
+     * moves the visitor's guest cart into the user's cart. The visitor is
+     * found by token when the client sends one, else by email.
      */
     @Transactional
-    public void convertVisitor(String email, User user) {
-        Optional<Visitor> visitorOpt = visitorRepository.findByEmail(email);
+    public void convertVisitor(String email, String visitorToken, User user) {
+        Optional<Visitor> visitorOpt = visitorToken != null && !visitorToken.isBlank()
+                ? visitorRepository.findByVisitorToken(visitorToken)
+                : visitorRepository.findByEmail(email);
         if (visitorOpt.isPresent()) {
             Visitor visitor = visitorOpt.get();
-            visitor.setUserId(user.getId());
-            visitor.setConverted(true);
-            visitorRepository.save(visitor);
-            log.info("Converted visitor record for email: {}", email);
+            if (!visitor.isConverted() || !user.getId().equals(visitor.getUserId())) {
+                visitor.setUserId(user.getId());
+                visitor.setConverted(true);
+                visitorRepository.save(visitor);
+                log.info("Converted visitor record for email: {}", email);
+            }
         }
+
+        // Guest carts live in memory only, nothing to roll back if this transaction fails
+        cartService.mergeGuestCart(visitorToken, user.getId());
     }
 
     /**
@@ -0,0 +1,112 @@
+package com.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, fields optionally
+ * quoted with doubled quotes as escapes, quoted fields may span lines. Reads
+ * one record at a time, so memory use is bounded by the longest record.
+ */
+public class CsvReader {
+
+    private final Reader reader;
+    private int pushedBack = -2;
+    private long line = 1;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Line the next record starts on (1-based).
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the next record, or null at end of input. Blank lines are
+     * skipped.
+     */
+    public List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean sawAnything = false;
+
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field before line " + line);
+                }
+                if (!sawAnything) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+
+            if (quoted) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(next);
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    quoted = true;
+                    sawAnything = true;
+                }
+                case ',' -> {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    sawAnything = true;
+                }
+                case '\r' -> {
+                    // Handled together with the following \n
+                }
+                case '\n' -> {
+                    line++;
+                    if (!sawAnything) {
+                        continue;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+                default -> {
+                    field.append((char) c);
+                    sawAnything = true;
+                }
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,48 @@
+package com.util;
+
+import com.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset pagination positions as opaque URL-safe tokens.
+ *
+ * A cursor is the (sort key, id) of the last row a client has seen; the next
+ * page is everything strictly after it in the listing's order. Clients must
+ * treat the token as opaque and only pass it back as {@code after}.
+ */
+public final class CursorCodec {
+
+    public record Cursor(String sortKey, long id) {
+    }
+
+    private static final char SEPARATOR = '|';
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Object sortKey, Long id) {
+        String raw = sortKey + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns null for a missing/blank token (first page).
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            return new Cursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a file or byte array as an HTTP response without copying files
+ * through the heap: strong ETag from a SHA-256 of the content (computed once
+ * per file version and remembered), Last-Modified, 304 for conditional
+ * requests, a single byte range (206/416) and HEAD.
+ *
+ * File bodies are handed to Tomcat's sendfile when the connector offers it,
+ * otherwise transferred from a FileChannel straight into the response stream.
+ */
+@Component
+public class FileResponseWriter {
+
+    /** For URLs whose content never changes (a new upload gets a new URL). */
+    public static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    /** For URLs whose content may change; clients revalidate with the ETag. */
+    public static final String CACHE_REVALIDATE = "public, max-age=86400";
+    /** For per-user content behind a fixed URL; clients keep it but revalidate every time. */
+    public static final String CACHE_PRIVATE = "private, no-cache";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int MAX_FINGERPRINTS = 20_000;
+
+    /** Size, modification time and strong ETag of a file version. */
+    public record Fingerprint(long size, long lastModified, String etag) {
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(long start, long end) throws IOException;
+    }
+
+    // Access-ordered so the eldest entry is the least recently served file
+    private final Map<Path, Fingerprint> fingerprints = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Fingerprint> eldest) {
+            return size() > MAX_FINGERPRINTS;
+        }
+    };
+
+    public void writeFile(HttpServletRequest request, HttpServletResponse response, Path file, String contentType,
+            String cacheControl) throws IOException {
+        writeFile(request, response, file, fingerprint(file), contentType, cacheControl);
+    }
+
+    /**
+     * Serves a file whose fingerprint the caller already knows (files that
+     * never change once written), without touching the file system before
+     * the body is sent.
+     */
+    public void writeFile(HttpServletRequest request, HttpServletResponse response, Path file,
+            Fingerprint fingerprint, String contentType, String cacheControl) throws IOException {
+        long length = fingerprint.size();
+        long lastModified = fingerprint.lastModified();
+        String etag = fingerprint.etag();
+
+        write(request, response, length, etag, lastModified, contentType, cacheControl, (start, end) -> {
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat sends the region from the kernel once the handler returns
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                long remaining = end - start + 1;
+                while (remaining > 0) {
+                    long sent = channel.transferTo(position, remaining, out);
+                    if (sent <= 0) {
+                        break;
+                    }
+                    position += sent;
+                    remaining -= sent;
+                }
+            }
+        });
+    }
+
+    public void writeBytes(HttpServletRequest request, HttpServletResponse response, byte[] data, String contentType,
+            String cacheControl) throws IOException {
+        write(request, response, data.length, etagOf(data), -1, contentType, cacheControl,
+                (start, end) -> response.getOutputStream().write(data, (int) start, (int) (end - start + 1)));
+    }
+
+    /**
+     * Current fingerprint of the file; the content is hashed only when its
+     * size or modification time changed since it was last seen, and never
+     * for a content-addressed blob, whose name is its hash.
+     */
+    public Fingerprint fingerprint(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String contentHash = FileStorageUtil.contentHashOf(file);
+        if (contentHash != null) {
+            return new Fingerprint(size, lastModified, "\"" + contentHash.substring(0, 32) + "\"");
+        }
+        synchronized (fingerprints) {
+            Fingerprint known = fingerprints.get(file);
+            if (known != null && known.size() == size && known.lastModified() == lastModified) {
+                return known;
+            }
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[16384];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        Fingerprint fingerprint = new Fingerprint(size, lastModified, toEtag(digest.digest()));
+        synchronized (fingerprints) {
+            fingerprints.put(file, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    public static String etagOf(byte[] data) {
+        return toEtag(sha256().digest(data));
+    }
+
+    // Helper methods
+
+    private void write(HttpServletRequest request, HttpServletResponse response, long length, String etag,
+            long lastModified, String contentType, String cacheControl, BodyWriter body) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        boolean notModified = lastModified >= 0 ? webRequest.checkNotModified(etag, lastModified)
+                : webRequest.checkNotModified(etag);
+        if (notModified) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        response.setContentType(contentType);
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && length > 0 && ifRangeMatches(request, etag)) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                // Multipart byte ranges are not worth it for images; the whole body is a valid answer
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setContentLengthLong(0);
+                return;
+            }
+        }
+
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+        body.write(start, end);
+    }
+
+    // A Range with If-Range applies only while the client's copy is current
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(etag);
+    }
+
+    private static String toEtag(byte[] hash) {
+        return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
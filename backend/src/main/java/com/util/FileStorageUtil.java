@@ -5,22 +5,54 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Content-addressed store for uploads. A file is hashed (SHA-256) while it is
+ * streamed to disk and kept once per distinct content under
+ * uploads/blobs/{hash[0..2]}/{hash[2..4]}/{hash}{.ext}, so the same picture
+ * uploaded again, or for another variant, reuses the existing file. A stored
+ * path never changes content and can be cached forever.
+ *
+ * Nothing is deleted here: blobs no row refers to any more are removed by
+ * UploadGarbageCollector. An upload that finds its blob gone in between
+ * (taken away by the collector) stores its own copy instead.
+ */
 @Component
 public class FileStorageUtil {
 
+    public static final String BLOB_DIRECTORY = "blobs";
+
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,5}");
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,5})?");
+
     private final Path uploadLocation;
+    private final Path blobLocation;
 
     public FileStorageUtil() {
-        this.uploadLocation = Paths.get("uploads").toAbsolutePath().normalize();
+        this(Paths.get("uploads"));
+    }
+
+    public FileStorageUtil(Path uploadLocation) {
+        this.uploadLocation = uploadLocation.toAbsolutePath().normalize();
+        this.blobLocation = this.uploadLocation.resolve(BLOB_DIRECTORY);
         try {
-            Files.createDirectories(this.uploadLocation);
+            Files.createDirectories(this.blobLocation);
         } catch (Exception ex) {
             throw new RuntimeException("Could not create the directory where the uploaded files will be stored.", ex);
         }
@@ -28,26 +60,111 @@ public class FileStorageUtil {
 
     public String storeFile(MultipartFile file) {
         String originalFileName = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-        String fileExtension = "";
 
+        try (InputStream in = file.getInputStream()) {
+            return storeContent(in, originalFileName);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        }
+    }
+
+    /**
+     * Stores the stream's content and returns its "/uploads/..." path for DB
+     * storage. Only the extension of {@code fileName} is used.
+     */
+    public String storeContent(InputStream in, String fileName) throws IOException {
+        Path temp = Files.createTempFile(this.blobLocation, ".upload", ".tmp");
         try {
-            if (originalFileName.contains("..")) {
-                throw new RuntimeException("Sorry! Filename contains invalid path sequence " + originalFileName);
+            MessageDigest digest = sha256();
+            try (DigestInputStream hashing = new DigestInputStream(in, digest)) {
+                Files.copy(hashing, temp, StandardCopyOption.REPLACE_EXISTING);
             }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String relative = BLOB_DIRECTORY + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash
+                    + extensionOf(fileName);
+            Path target = this.uploadLocation.resolve(relative);
 
-            int i = originalFileName.lastIndexOf('.');
-            if (i > 0) {
-                fileExtension = originalFileName.substring(i);
+            if (Files.exists(target)) {
+                try {
+                    // Same content is already stored; the fresh mtime keeps the garbage collector off it until
+                    // the row that names it is committed
+                    Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                    return "/uploads/" + relative;
+                } catch (NoSuchFileException e) {
+                    // The garbage collector took it away since the check: store this copy after all
+                }
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // A concurrent upload of the same content won the race
             }
+            return "/uploads/" + relative;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-            String fileName = UUID.randomUUID().toString() + fileExtension;
-            Path targetLocation = this.uploadLocation.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * File behind a stored "/uploads/..." path, or null if the path does not
+     * point into the upload directory.
+     */
+    public Path resolveStoredPath(String storedPath) {
+        if (storedPath == null || !storedPath.startsWith("/uploads/")) {
+            return null;
+        }
+        Path filePath = this.uploadLocation.resolve(storedPath.substring("/uploads/".length())).normalize();
+        return filePath.startsWith(this.uploadLocation) ? filePath : null;
+    }
 
-            // Return relative path for DB storage
-            return "/uploads/" + fileName;
-        } catch (IOException ex) {
-            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+    /**
+     * The "/uploads/..." path of a file in the upload directory.
+     */
+    public String toStoredPath(Path file) {
+        return "/uploads/" + this.uploadLocation.relativize(file.toAbsolutePath().normalize()).toString()
+                .replace('\\', '/');
+    }
+
+    public Path getBlobLocation() {
+        return this.blobLocation;
+    }
+
+    /**
+     * SHA-256 (hex) of a content-addressed blob, taken from its name, or null
+     * for any other file (legacy uploads, renditions).
+     */
+    public static String contentHashOf(Path file) {
+        Path parent = file.getParent();
+        Path blobDirectory = parent != null && parent.getParent() != null ? parent.getParent().getParent() : null;
+        // getFileName() is null for a root directory
+        if (blobDirectory == null || !BLOB_DIRECTORY.equals(String.valueOf(blobDirectory.getFileName()))) {
+            return null;
+        }
+        Matcher matcher = BLOB_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    // Helper methods
+
+    // ".jpg" etc., or "" if the name has no plain short extension
+    private static String extensionOf(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int i = fileName.lastIndexOf('.');
+        if (i <= 0) {
+            return "";
+        }
+        String extension = fileName.substring(i).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 }
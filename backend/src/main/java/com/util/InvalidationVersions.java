@@ -0,0 +1,63 @@
+package com.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-key invalidation guard for the read-through caches.
+ *
+ * A load takes a position with {@link #beginLoad()} before it reads the
+ * database, and caches what it read only if {@link #isCurrent} says its key
+ * was not invalidated since; otherwise a read racing a write could put the
+ * pre-commit state back. Invalidating one key leaves concurrent loads of the
+ * other keys cacheable. Every beginLoad must be paired with an
+ * {@link #endLoad()}, also when the load fails: once no load is in flight the
+ * recorded invalidations are forgotten, so the guard stays as small as the
+ * set of keys invalidated while loads overlap.
+ *
+ * Not thread-safe: callers hold their cache's lock around every call.
+ */
+public final class InvalidationVersions<K> {
+
+    private final Map<K, Long> invalidatedAt = new HashMap<>();
+
+    private long sequence;
+    private long allInvalidatedAt;
+    private int loading;
+
+    /**
+     * Position to pass to {@link #isCurrent} when the load is done.
+     */
+    public long beginLoad() {
+        loading++;
+        return sequence;
+    }
+
+    public void endLoad() {
+        if (--loading == 0) {
+            invalidatedAt.clear();
+            allInvalidatedAt = 0;
+        }
+    }
+
+    /**
+     * Whether a load that began at this position may cache its result for the
+     * key.
+     */
+    public boolean isCurrent(K key, long loadStart) {
+        return allInvalidatedAt <= loadStart && invalidatedAt.getOrDefault(key, 0L) <= loadStart;
+    }
+
+    public void invalidate(K key) {
+        if (loading > 0) {
+            invalidatedAt.put(key, ++sequence);
+        }
+    }
+
+    public void invalidateAll() {
+        if (loading > 0) {
+            invalidatedAt.clear();
+            allInvalidatedAt = ++sequence;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+-- Migration Script: One attribute_values row per (attribute_id, value)
+-- Purpose: AttributeValue declares uk_attribute_value, but ddl-auto=update silently skips the key
+--          while duplicate rows exist. Merge the duplicates into the lowest id, re-point the variant
+--          links at it, then add the key. Run once, before deploying with the constraint.
+-- Matching follows the column collation, so 'Red' and 'red' are merged like the key would reject them.
+
+-- 1. Map every duplicate row to the row that is kept
+CREATE TEMPORARY TABLE attribute_value_merge AS
+SELECT av.id AS duplicate_id, keep.id AS canonical_id
+FROM attribute_values av
+JOIN (
+    SELECT attribute_id, value, MIN(id) AS id
+    FROM attribute_values
+    GROUP BY attribute_id, value
+    HAVING COUNT(*) > 1
+) keep ON keep.attribute_id = av.attribute_id AND keep.value = av.value
+WHERE av.id <> keep.id;
+
+-- 2. Keep a color hex from a duplicate when the kept row has none
+UPDATE attribute_values kept
+JOIN attribute_value_merge m ON m.canonical_id = kept.id
+JOIN attribute_values dup ON dup.id = m.duplicate_id
+SET kept.metadata = dup.metadata
+WHERE kept.metadata IS NULL AND dup.metadata IS NOT NULL;
+
+-- 3. Re-point variant links at the kept rows
+UPDATE variant_attribute_values vav
+JOIN attribute_value_merge m ON m.duplicate_id = vav.attribute_value_id
+SET vav.attribute_value_id = m.canonical_id;
+
+-- 4. A variant linked to two duplicates now has the same link twice: keep the first
+DELETE vav FROM variant_attribute_values vav
+JOIN variant_attribute_values other ON other.variant_id = vav.variant_id
+    AND other.attribute_value_id = vav.attribute_value_id
+    AND other.id < vav.id;
+
+-- 5. Drop the duplicates, nothing references them any more
+DELETE av FROM attribute_values av
+JOIN attribute_value_merge m ON m.duplicate_id = av.id;
+
+DROP TEMPORARY TABLE attribute_value_merge;
+
+-- 6. Add the key the entity declares (skip if SHOW INDEX FROM attribute_values already lists it)
+ALTER TABLE attribute_values ADD CONSTRAINT uk_attribute_value UNIQUE (attribute_id, value);
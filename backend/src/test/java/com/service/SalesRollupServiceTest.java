@@ -0,0 +1,167 @@
+package com.service;
+
+import com.entity.DailySalesRollup;
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.OrderStatus;
+import com.entity.PaymentStatus;
+import com.event.OrderSalesChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The incremental deltas must leave the rollup rows exactly where a full
+ * recompute of the day (SalesRollupService.recompute) would put them.
+ */
+class SalesRollupServiceTest {
+
+    // Rollup rows of one day by tenant: [orders, gross, commission, net, cancelled, paid]
+    private final Map<Long, double[]> rows = new TreeMap<>();
+
+    private final List<Order> orders = new ArrayList<>();
+
+    @Test
+    void deltasMatchRecomputeAfterPlaceCancelAndRecommit() {
+        Order a = place(1, item(10L, 100, 10), item(20L, 50, 5));
+        Order b = place(2, item(10L, 40, 4));
+        Order c = place(3, item(20L, 70, 7));
+        assertMatchesRecompute();
+
+        change(a, order -> order.setPaymentStatus(PaymentStatus.COMPLETED));
+        change(b, order -> order.setStatus(OrderStatus.CANCELLED));
+        assertMatchesRecompute();
+
+        // Hold expired, then the payment arrived anyway: the order is revived and paid
+        change(c, order -> {
+            order.setStatus(OrderStatus.CANCELLED);
+            order.setPaymentStatus(PaymentStatus.FAILED);
+        });
+        change(c, order -> order.setStatus(OrderStatus.PENDING));
+        change(c, order -> order.setPaymentStatus(PaymentStatus.COMPLETED));
+        change(a, order -> order.setStatus(OrderStatus.SHIPPED));
+        assertMatchesRecompute();
+
+        delete(b);
+        delete(a);
+        assertMatchesRecompute();
+        assertThat(rows.get(10L)[0]).isZero();
+    }
+
+    @Test
+    void unchangedContributionProducesNoRowChanges() {
+        Order a = place(1, item(10L, 100, 10));
+        OrderSalesChangedEvent.Contribution contribution = OrderSalesChangedEvent.Contribution.of(a);
+
+        assertThat(SalesRollupService.deltas(contribution, contribution)).isEmpty();
+    }
+
+    // Helper methods
+
+    private Order place(long id, OrderItem... items) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(OrderStatus.PENDING);
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        double total = 0;
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            order.getItems().add(item);
+            total += item.getGrossAmount();
+        }
+        order.setTotalAmount(total);
+        orders.add(order);
+        apply(null, OrderSalesChangedEvent.Contribution.of(order));
+        return order;
+    }
+
+    private void change(Order order, Consumer<Order> change) {
+        OrderSalesChangedEvent.Contribution before = OrderSalesChangedEvent.Contribution.of(order);
+        change.accept(order);
+        apply(before, OrderSalesChangedEvent.Contribution.of(order));
+    }
+
+    private void delete(Order order) {
+        orders.remove(order);
+        apply(OrderSalesChangedEvent.Contribution.of(order), null);
+    }
+
+    private static OrderItem item(Long tenantId, double gross, double commission) {
+        OrderItem item = new OrderItem();
+        item.setTenantId(tenantId);
+        item.setQuantity(1);
+        item.setPrice(gross);
+        item.setGrossAmount(gross);
+        item.setCommissionAmount(commission);
+        item.setNetAmount(gross - commission);
+        return item;
+    }
+
+    private void apply(OrderSalesChangedEvent.Contribution before, OrderSalesChangedEvent.Contribution after) {
+        for (SalesRollupService.Delta delta : SalesRollupService.deltas(before, after)) {
+            double[] row = rows.computeIfAbsent(delta.tenantId(), t -> new double[6]);
+            row[0] += delta.orders();
+            row[1] += delta.gross();
+            row[2] += delta.commission();
+            row[3] += delta.net();
+            row[4] += delta.cancelled();
+            row[5] += delta.paid();
+        }
+    }
+
+    // Same aggregation as UPSERT_PLATFORM_SQL / UPSERT_TENANT_SQL, over the orders as they are now
+    private Map<Long, double[]> recompute() {
+        Map<Long, double[]> expected = new TreeMap<>();
+        for (Order order : orders) {
+            boolean cancelled = order.getStatus() == OrderStatus.CANCELLED;
+            boolean paid = order.getPaymentStatus() == PaymentStatus.COMPLETED;
+
+            double[] platform = expected.computeIfAbsent(DailySalesRollup.PLATFORM_TENANT, t -> new double[6]);
+            platform[0]++;
+            Set<Long> tenants = new HashSet<>();
+            for (OrderItem item : order.getItems()) {
+                if (!cancelled) {
+                    platform[2] += item.getCommissionAmount();
+                    platform[3] += item.getNetAmount();
+                }
+                double[] row = expected.computeIfAbsent(item.getTenantId(), t -> new double[6]);
+                if (tenants.add(item.getTenantId())) {
+                    row[0]++;
+                    row[4] += cancelled ? 1 : 0;
+                    row[5] += paid ? 1 : 0;
+                }
+                if (!cancelled) {
+                    row[1] += item.getGrossAmount();
+                    row[2] += item.getCommissionAmount();
+                    row[3] += item.getNetAmount();
+                }
+            }
+            platform[1] += cancelled ? 0 : order.getTotalAmount();
+            platform[4] += cancelled ? 1 : 0;
+            platform[5] += paid ? 1 : 0;
+        }
+        return expected;
+    }
+
+    private void assertMatchesRecompute() {
+        Map<Long, double[]> expected = recompute();
+        Set<Long> tenants = new HashSet<>(expected.keySet());
+        tenants.addAll(rows.keySet());
+        for (Long tenant : tenants) {
+            double[] want = expected.getOrDefault(tenant, new double[6]);
+            double[] have = rows.getOrDefault(tenant, new double[6]);
+            for (int i = 0; i < want.length; i++) {
+                assertThat(have[i]).as("tenant %d column %d", tenant, i).isCloseTo(want[i], within(1e-9));
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.service;
+
+import com.repository.ProductImageRepository;
+import com.repository.UserRepository;
+import com.util.FileStorageUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Content-addressed uploads are stored once per content, and the collector
+ * deletes a blob only when no row names it, including rows that commit while
+ * it runs.
+ */
+class UploadGarbageCollectorTest {
+
+    @TempDir
+    Path uploads;
+
+    private FileStorageUtil fileStorageUtil;
+    private ProductImageRepository productImageRepository;
+    private UserRepository userRepository;
+    private UploadGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        fileStorageUtil = new FileStorageUtil(uploads);
+        productImageRepository = mock(ProductImageRepository.class);
+        userRepository = mock(UserRepository.class);
+        when(productImageRepository.findReferencedImageUrls(any())).thenReturn(List.of());
+        when(userRepository.findReferencedProfilePicturePaths(any())).thenReturn(List.of());
+
+        collector = new UploadGarbageCollector();
+        ReflectionTestUtils.setField(collector, "fileStorageUtil", fileStorageUtil);
+        ReflectionTestUtils.setField(collector, "productImageRepository", productImageRepository);
+        ReflectionTestUtils.setField(collector, "userRepository", userRepository);
+        ReflectionTestUtils.setField(collector, "graceMinutes", 60L);
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws IOException {
+        String first = store("red shirt", "front.jpg");
+        String second = store("red shirt", "copy.JPG");
+        String other = store("blue shirt", "front.jpg");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(other).isNotEqualTo(first);
+        assertThat(blobFiles()).hasSize(2);
+    }
+
+    @Test
+    void collectDeletesOnlyUnreferencedBlobs() throws IOException {
+        String image = store("product image", "a.jpg");
+        String picture = store("profile picture", "b.png");
+        String orphan = store("replaced image", "c.jpg");
+        Path orphanRendition = ImageRenditionService.pathOf(blob(orphan), ImageRenditionService.Rendition.THUMB);
+        Files.writeString(orphanRendition, "thumb");
+        age(image, picture, orphan);
+        referencedBy(productImageRepository, image);
+        when(userRepository.findReferencedProfilePicturePaths(any()))
+                .thenAnswer(invocation -> named(invocation.getArgument(0), picture));
+
+        collector.collect();
+
+        assertThat(blob(image)).exists();
+        assertThat(blob(picture)).exists();
+        assertThat(blob(orphan)).doesNotExist();
+        assertThat(orphanRendition).doesNotExist();
+        assertThat(blobFiles()).hasSize(2);
+    }
+
+    @Test
+    void blobReferencedWhileCollectingIsKept() throws IOException {
+        String image = store("image being saved", "a.jpg");
+        age(image);
+        // The row naming it commits between the collector's two reference checks
+        when(productImageRepository.findReferencedImageUrls(any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(image));
+
+        collector.collect();
+
+        assertThat(blob(image)).exists();
+        assertThat(Files.readString(blob(image))).isEqualTo("image being saved");
+    }
+
+    @Test
+    void blobTouchedByAnUploadIsKept() throws IOException {
+        String image = store("image uploaded again", "a.jpg");
+        age(image);
+
+        // Uploading the same content refreshes the existing blob's mtime
+        assertThat(store("image uploaded again", "b.jpg")).isEqualTo(image);
+        collector.collect();
+
+        assertThat(blob(image)).exists();
+    }
+
+    @Test
+    void contentUploadedAfterCollectionIsStoredAgain() throws IOException {
+        String image = store("deleted then uploaded", "a.jpg");
+        age(image);
+        collector.collect();
+        assertThat(blob(image)).doesNotExist();
+
+        assertThat(store("deleted then uploaded", "a.jpg")).isEqualTo(image);
+
+        assertThat(Files.readString(blob(image))).isEqualTo("deleted then uploaded");
+    }
+
+    @Test
+    void blobLeftInQuarantineIsRestored() throws IOException {
+        String image = store("interrupted collection", "a.jpg");
+        Path quarantine = blob(image).resolveSibling(blob(image).getFileName() + ".gc");
+        Files.move(blob(image), quarantine);
+        referencedBy(productImageRepository, image);
+
+        collector.collect();
+
+        assertThat(blob(image)).exists();
+        assertThat(quarantine).doesNotExist();
+    }
+
+    // Helper methods
+
+    private String store(String content, String fileName) throws IOException {
+        return fileStorageUtil.storeContent(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                fileName);
+    }
+
+    private Path blob(String storedPath) {
+        return fileStorageUtil.resolveStoredPath(storedPath);
+    }
+
+    private void age(String... storedPaths) throws IOException {
+        FileTime twoHoursAgo = FileTime.fromMillis(System.currentTimeMillis() - 2 * 3_600_000);
+        for (String storedPath : storedPaths) {
+            Files.setLastModifiedTime(blob(storedPath), twoHoursAgo);
+        }
+    }
+
+    private List<Path> blobFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(fileStorageUtil.getBlobLocation())) {
+            return files.filter(file -> FileStorageUtil.contentHashOf(file) != null).toList();
+        }
+    }
+
+    private static void referencedBy(ProductImageRepository repository, String... storedPaths) {
+        when(repository.findReferencedImageUrls(any()))
+                .thenAnswer(invocation -> named(invocation.getArgument(0), storedPaths));
+    }
+
+    // The stored paths of the query that rows name
+    private static List<String> named(Collection<String> queried, String... storedPaths) {
+        Set<String> referenced = Set.of(storedPaths);
+        return queried.stream().filter(referenced::contains).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A load is cacheable unless its own key was invalidated while it ran.
+ */
+class InvalidationVersionsTest {
+
+    private final InvalidationVersions<Long> versions = new InvalidationVersions<>();
+
+    @Test
+    void invalidatingAnotherKeyKeepsTheLoadCacheable() {
+        long loadStart = versions.beginLoad();
+        versions.invalidate(2L);
+
+        assertThat(versions.isCurrent(1L, loadStart)).isTrue();
+        assertThat(versions.isCurrent(2L, loadStart)).isFalse();
+    }
+
+    @Test
+    void invalidateAllDiscardsEveryOverlappingLoad() {
+        long loadStart = versions.beginLoad();
+        versions.invalidateAll();
+
+        assertThat(versions.isCurrent(1L, loadStart)).isFalse();
+        long laterStart = versions.beginLoad();
+        assertThat(versions.isCurrent(1L, laterStart)).isTrue();
+    }
+
+    @Test
+    void invalidationBeforeTheLoadDoesNotCount() {
+        long earlierStart = versions.beginLoad();
+        versions.invalidate(1L);
+        long loadStart = versions.beginLoad();
+        versions.endLoad();
+
+        assertThat(versions.isCurrent(1L, loadStart)).isTrue();
+        assertThat(versions.isCurrent(1L, earlierStart)).isFalse();
+    }
+
+    @Test
+    void invalidationsAreForgottenOnceNoLoadIsInFlight() {
+        versions.beginLoad();
+        versions.invalidate(1L);
+        versions.endLoad();
+
+        long nextStart = versions.beginLoad();
+        assertThat(versions.isCurrent(1L, nextStart)).isTrue();
+    }
+}